@@ -0,0 +1,66 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    private final static int MIX_SIZE = 4096;
+
+    private short[] opcodes;
+    private Instruction[] decoded;
+
+    @Setup
+    public void setup() throws IOException {
+        opcodes = RomOpcodes.mix(MIX_SIZE);
+        decoded = new Instruction[MIX_SIZE];
+        for (int i = 0; i < MIX_SIZE; i++) {
+            // Words of the ROMs which are not instructions are measured as a no operand CLS
+            Instruction instruction = Instruction.getMatched(opcodes[i]);
+            decoded[i] = instruction == null ? Instruction.CLS : instruction;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MIX_SIZE)
+    public void decodeTable(Blackhole blackhole) {
+        for (short opcode : opcodes) {
+            blackhole.consume(Instruction.getMatched(opcode));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MIX_SIZE)
+    public void linearScan(Blackhole blackhole) {
+        for (short opcode : opcodes) {
+            blackhole.consume(Instruction.scan(opcode));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MIX_SIZE)
+    public void getArguments(Blackhole blackhole) {
+        for (int i = 0; i < MIX_SIZE; i++) {
+            blackhole.consume(decoded[i].getArguments(opcodes[i]));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    private final static int INSTRUCTIONS = 10_000;
+
+    @Param({"BLINKY", "INVADERS", "PONG", "TETRIS", "15PUZZLE"})
+    public String rom;
+
+    @Param({"interpreter", "blockCache", "jit"})
+    public String engine;
+
+    // Off so that waiting loops are run like any other code, there are no timer ticks here to end them
+    @Param({"false"})
+    public boolean idleLoopSkipping;
+
+    // Only the block cache engines decode pairs of instructions into fused operations
+    @Param({"true", "false"})
+    public boolean fusion;
+
+    private ProcessingUnit processingUnit;
+    private CpuEngine cpuEngine;
+
+    @Setup
+    public void setup() throws IOException {
+        File romDir = new File(System.getProperty("chip8.rom.dir", "rom"));
+        Memory memory = new Memory();
+        memory.loadGame(Files.readAllBytes(new File(romDir, rom).toPath()));
+        // Key waits are answered straight away so that the ROM keeps running
+        Keyboard keyboard = new Keyboard() {
+            @Override
+            public int takeReleasedKey() {
+                return 5;
+            }
+        };
+        processingUnit = new ProcessingUnit(memory, new FrameBuffer(), keyboard, Frontend.NONE, Speaker.NONE);
+        processingUnit.setEngine(engine);
+        cpuEngine = processingUnit.getEngine();
+        if (cpuEngine instanceof BlockCacheEngine) {
+            ((BlockCacheEngine) cpuEngine).setFusion(fusion);
+        }
+        processingUnit.setIdleLoopSkipping(idleLoopSkipping);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public int run() {
+        return cpuEngine.run(INSTRUCTIONS);
+    }
+}
@@ -0,0 +1,66 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecuteBenchmark {
+
+    private final static short PROGRAM_START = 0x200;
+    private final static short SUBROUTINE = 0x300;
+    private final static short DATA = 0x400;
+
+    // One opcode per instruction class, LD_VX_K is left out as it halts the CPU until a key press.
+    // 2300 is measured together with the 00EE found at the called address.
+    @Param({"00E0", "1200", "2300", "3A00", "4A00", "5AB0", "6A12", "7A01",
+            "8AB0", "8AB1", "8AB2", "8AB3", "8AB4", "8AB5", "8AB6", "8AB7", "8ABE", "9AB0",
+            "A400", "B200", "CA7F", "DAB5", "EA9E", "EAA1",
+            "FA07", "FA15", "FA18", "FA1E", "FA29", "FA33", "FA55", "FA65"})
+    public String opcode;
+
+    private Memory memory;
+    private ProcessingUnit processingUnit;
+    private int cycles;
+
+    @Setup
+    public void setup() {
+        short instruction = (short) Integer.parseInt(opcode, 16);
+        memory = new Memory();
+        memory.setByte(PROGRAM_START, (byte) (instruction >>> 8));
+        memory.setByte(PROGRAM_START + 1, (byte) instruction);
+        memory.setByte(SUBROUTINE, (byte) 0x00);
+        memory.setByte(SUBROUTINE + 1, (byte) 0xEE);
+        processingUnit = new ProcessingUnit(memory, new FrameBuffer(), new Keyboard(), Frontend.NONE, Speaker.NONE);
+        processingUnit.setV(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        processingUnit.setI(DATA);
+        cycles = Instruction.getMatched(instruction) == Instruction.CALL_ADDR ? 2 : 1;
+    }
+
+    @Benchmark
+    public int execute() {
+        memory.setPC(PROGRAM_START);
+        processingUnit.setI(DATA);
+        int status = ProcessingUnit.CYCLE_OK;
+        for (int i = 0; i < cycles; i++) {
+            status |= processingUnit.runInstructionCycle();
+        }
+
+        return status;
+    }
+}
@@ -0,0 +1,54 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameBufferBenchmark {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15"})
+    public int rows;
+
+    private FrameBuffer frameBuffer;
+    private byte[] sprite;
+    private int x;
+
+    @Setup
+    public void setup() {
+        frameBuffer = new FrameBuffer();
+        sprite = new byte[rows];
+        for (int i = 0; i < rows; i++) {
+            sprite[i] = (byte) (0xA5 ^ (i * 0x1F));
+        }
+    }
+
+    // Draws a sprite row by row the way DRW does, moving it so that every horizontal offset gets covered
+    @Benchmark
+    public boolean drawSprite() {
+        x = (x + 1) & 0xff;
+        byte xValue = (byte) x;
+        byte yValue = (byte) (x >>> 3);
+        frameBuffer.beginSprite();
+        for (int i = 0; i < rows; i++) {
+            frameBuffer.display(xValue, yValue, sprite[i], i);
+        }
+
+        return frameBuffer.erasedPrevious();
+    }
+}
@@ -0,0 +1,66 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Time a frame takes to emulate with and without skipping idle loops, at a clock rate high enough for a frame to
+// go round the waiting loops of the ROMs several times. The CPU time of the emulation thread is this times 60 per
+// second, the rest of each frame is spent parked.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdleLoopBenchmark {
+
+    @Param({"INVADERS", "TETRIS", "15PUZZLE"})
+    public String rom;
+
+    @Param({"interpreter", "jit"})
+    public String engine;
+
+    @Param({"true", "false"})
+    public boolean skipping;
+
+    @Param({"60000"})
+    public int clockRate;
+
+    private ProcessingUnit processingUnit;
+
+    @Setup
+    public void setup() throws IOException {
+        File romDir = new File(System.getProperty("chip8.rom.dir", "rom"));
+        Memory memory = new Memory();
+        memory.loadGame(Files.readAllBytes(new File(romDir, rom).toPath()));
+        Keyboard keyboard = new Keyboard() {
+            @Override
+            public int takeReleasedKey() {
+                return 5;
+            }
+        };
+        processingUnit = new ProcessingUnit(memory, new FrameBuffer(), keyboard, Frontend.NONE, Speaker.NONE);
+        processingUnit.setClockRate(clockRate);
+        processingUnit.setEngine(engine);
+        processingUnit.setIdleLoopSkipping(skipping);
+    }
+
+    @Benchmark
+    public int runFrame() {
+        return processingUnit.runFrame();
+    }
+}
@@ -0,0 +1,44 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryBenchmark {
+
+    private final static short PROGRAM_START = 0x200;
+    private final static int PROGRAM_END = 0xffe;
+
+    private Memory memory;
+
+    @Setup
+    public void setup() throws IOException {
+        memory = new Memory();
+        memory.loadGame(RomOpcodes.loadRoms().get(0));
+    }
+
+    @Benchmark
+    public short nextInstruction() {
+        if ((memory.getPC() & 0xffff) >= PROGRAM_END) {
+            memory.setPC(PROGRAM_START);
+        }
+
+        return memory.nextInstruction();
+    }
+}
@@ -0,0 +1,64 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Whole frames with and without the profiler, "off" should match the plain interpreter of EngineBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfilerBenchmark {
+
+    private final static int CLOCK_RATE = 600_000;
+    private final static int INSTRUCTIONS_PER_FRAME = CLOCK_RATE / FrameScheduler.REFRESH_RATE;
+
+    @Param({"INVADERS", "TETRIS"})
+    public String rom;
+
+    @Param({"off", "on"})
+    public String profiling;
+
+    private ProcessingUnit processingUnit;
+
+    @Setup
+    public void setup() throws IOException {
+        File romDir = new File(System.getProperty("chip8.rom.dir", "rom"));
+        Memory memory = new Memory();
+        memory.loadGame(Files.readAllBytes(new File(romDir, rom).toPath()));
+        Keyboard keyboard = new Keyboard() {
+            @Override
+            public int takeReleasedKey() {
+                return 5;
+            }
+        };
+        processingUnit = new ProcessingUnit(memory, new FrameBuffer(), keyboard, Frontend.NONE, Speaker.NONE);
+        processingUnit.setClockRate(CLOCK_RATE);
+        if ("on".equals(profiling)) {
+            processingUnit.setProfiler(new Profiler());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS_PER_FRAME)
+    public int runFrame() {
+        return processingUnit.runFrame();
+    }
+}
@@ -0,0 +1,94 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of a ROM under each quirk profile, which should cost nothing over MODERN. With mixed on, machines under
+// every profile run first in the same JVM, as in a BatchRunner or LockstepValidator run over ROMs of several profiles.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuirkBenchmark {
+
+    private final static int INSTRUCTIONS = 10_000;
+    private final static int MIXED_INSTRUCTIONS = 2_000_000;
+
+    @Param({"BLINKY", "INVADERS"})
+    public String rom;
+
+    @Param({"interpreter", "blockCache"})
+    public String engine;
+
+    @Param({"MODERN", "COSMAC_VIP", "CHIP48", "SCHIP"})
+    public String quirks;
+
+    @Param({"false", "true"})
+    public boolean mixed;
+
+    private CpuEngine cpuEngine;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] game = Files.readAllBytes(new File(System.getProperty("chip8.rom.dir", "rom"), rom).toPath());
+        if (mixed) {
+            for (QuirkProfile profile : QuirkProfile.values()) {
+                if (profile.name().equals(quirks)) {
+                    continue;
+                }
+                CpuEngine other = machine(game, profile);
+                for (int i = 0; i < MIXED_INSTRUCTIONS; i += INSTRUCTIONS) {
+                    other.run(INSTRUCTIONS);
+                }
+            }
+        }
+        cpuEngine = machine(game, QuirkProfile.valueOf(quirks));
+    }
+
+    // Key waits are answered straight away so that the ROM keeps running, waiting loops are run like any other code
+    private CpuEngine machine(byte[] game, QuirkProfile profile) {
+        Memory memory = new Memory();
+        Keyboard keyboard = new Keyboard() {
+            @Override
+            public int takeReleasedKey() {
+                return 5;
+            }
+        };
+        ProcessingUnit processingUnit = new ProcessingUnit(memory, new FrameBuffer(), keyboard, Frontend.NONE, Speaker.NONE);
+        processingUnit.setQuirkProfile(profile);
+        memory.loadGame(game);
+        processingUnit.setEngine(engine);
+        processingUnit.setIdleLoopSkipping(false);
+        CpuEngine cpuEngine = processingUnit.getEngine();
+        int status = cpuEngine.run(MIXED_INSTRUCTIONS);
+        if (status != ProcessingUnit.CYCLE_OK) {
+            throw new IllegalStateException(String.format("%s stopped under %s: %s", rom, profile,
+                    processingUnit.describeStatus(status)));
+        }
+
+        return cpuEngine;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public int run() {
+        return cpuEngine.run(INSTRUCTIONS);
+    }
+}
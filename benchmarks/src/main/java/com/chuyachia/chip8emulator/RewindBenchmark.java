@@ -0,0 +1,83 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Cost of keeping rewind history per frame and of stepping back, at the default and at a high clock rate
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RewindBenchmark {
+
+    private final static int HISTORY_FRAMES = 600;
+
+    @Param({"INVADERS", "TETRIS"})
+    public String rom;
+
+    @Param({"500", "50000"})
+    public int clockRate;
+
+    private ProcessingUnit processingUnit;
+    private RewindBuffer rewindBuffer;
+
+    @Setup
+    public void setup() throws IOException {
+        File romDir = new File(System.getProperty("chip8.rom.dir", "rom"));
+        Memory memory = new Memory();
+        memory.loadGame(Files.readAllBytes(new File(romDir, rom).toPath()));
+        Keyboard keyboard = new Keyboard() {
+            @Override
+            public int takeReleasedKey() {
+                return 5;
+            }
+        };
+        FrameBuffer frameBuffer = new FrameBuffer();
+        processingUnit = new ProcessingUnit(memory, frameBuffer, keyboard, Frontend.NONE, Speaker.NONE);
+        processingUnit.setClockRate(clockRate);
+        processingUnit.setEngine(CpuEngines.JIT);
+        rewindBuffer = new RewindBuffer(processingUnit, memory);
+        rewindBuffer.capture();
+        for (int i = 0; i < HISTORY_FRAMES; i++) {
+            processingUnit.runFrame();
+            rewindBuffer.capture();
+        }
+    }
+
+    @Benchmark
+    public int frame() {
+        return processingUnit.runFrame();
+    }
+
+    @Benchmark
+    public int frameWithCapture() {
+        int status = processingUnit.runFrame();
+        rewindBuffer.capture();
+        return status;
+    }
+
+    // Keeps the history length steady, the frame run again is the one just stepped over
+    @Benchmark
+    public int stepBackAndReplay() {
+        rewindBuffer.stepBack();
+        int status = processingUnit.runFrame();
+        rewindBuffer.capture();
+        return status;
+    }
+}
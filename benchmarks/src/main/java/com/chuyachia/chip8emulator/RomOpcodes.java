@@ -0,0 +1,45 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RomOpcodes {
+
+    private final static String ROM_DIR_PROPERTY = "chip8.rom.dir";
+    private final static String DEFAULT_ROM_DIR = "rom";
+
+    public static List<byte[]> loadRoms() throws IOException {
+        File romDir = new File(System.getProperty(ROM_DIR_PROPERTY, DEFAULT_ROM_DIR));
+        File[] files = romDir.listFiles(File::isFile);
+        if (files == null || files.length == 0) {
+            throw new IOException(String.format("No ROM found in %s, set -D%s", romDir.getAbsolutePath(), ROM_DIR_PROPERTY));
+        }
+
+        List<byte[]> roms = new ArrayList<>();
+        for (File file : files) {
+            roms.add(Files.readAllBytes(file.toPath()));
+        }
+
+        return roms;
+    }
+
+    // Every 16 bits word found in the ROMs, repeated until size is reached
+    public static short[] mix(int size) throws IOException {
+        List<Short> words = new ArrayList<>();
+        for (byte[] rom : loadRoms()) {
+            for (int i = 0; i + 1 < rom.length; i += 2) {
+                words.add((short) ((rom[i] & 0xff) << 8 | (rom[i + 1] & 0xff)));
+            }
+        }
+
+        short[] opcodes = new short[size];
+        for (int i = 0; i < size; i++) {
+            opcodes[i] = words.get(i % words.size());
+        }
+
+        return opcodes;
+    }
+}
@@ -0,0 +1,88 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ScreenBenchmark {
+
+    // Scale factors offered on the home panel
+    @Param({"10", "20", "30", "40", "50"})
+    public int scaleFactor;
+
+    // SUPER-CHIP 128x64 frames, four times the pixels at the same window size
+    @Param({"false", "true"})
+    public boolean hires;
+
+    private FrameBuffer frameBuffer;
+    private Screen screen;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setup() {
+        frameBuffer = new FrameBuffer();
+        frameBuffer.switchResolution(hires);
+        for (int i = 0; i < frameBuffer.getHeight(); i++) {
+            frameBuffer.display((byte) (i * 3), (byte) 0, (byte) 0xC3, i);
+        }
+        frameBuffer.publish();
+
+        screen = new Screen(frameBuffer);
+        screen.setScaleFactor(scaleFactor);
+        image = new BufferedImage(FrameBuffer.WIDTH * scaleFactor, FrameBuffer.HEIGHT * scaleFactor, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    // Repaint of an unchanged frame
+    @Benchmark
+    public BufferedImage paintComponent() {
+        screen.paintComponent(graphics);
+        return image;
+    }
+
+    // Repaint after a 15 row sprite got moved, as in a typical game frame
+    @Benchmark
+    public BufferedImage paintAfterSprite() {
+        for (int i = 0; i < 15; i++) {
+            frameBuffer.display((byte) 20, (byte) 8, (byte) 0xA5, i);
+        }
+        frameBuffer.publish();
+        screen.paintComponent(graphics);
+        return image;
+    }
+
+    // Repaint after the whole screen scrolled, every row changes
+    @Benchmark
+    public BufferedImage paintAfterScroll() {
+        frameBuffer.scrollRight();
+        frameBuffer.display((byte) 0, (byte) 0, (byte) 0xF0, 0);
+        frameBuffer.publish();
+        screen.paintComponent(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,81 @@
+package com.chuyachia.chip8emulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Cost of taking and restoring a whole machine snapshot, as a save state and as a copy of the machine state
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private final static int FRAMES = 600;
+
+    private ProcessingUnit processingUnit;
+    private FrameBuffer frameBuffer;
+    private final ByteBuffer saveState = ByteBuffer.allocate(SaveState.SIZE);
+    private final byte[] snapshot = MachineState.allocate();
+
+    @Setup
+    public void setup() throws IOException {
+        File romDir = new File(System.getProperty("chip8.rom.dir", "rom"));
+        Memory memory = new Memory();
+        memory.loadGame(Files.readAllBytes(new File(romDir, "INVADERS").toPath()));
+        frameBuffer = new FrameBuffer();
+        processingUnit = new ProcessingUnit(memory, frameBuffer, new Keyboard(), Frontend.NONE, Speaker.NONE);
+        for (int i = 0; i < FRAMES; i++) {
+            processingUnit.runFrame();
+        }
+        SaveState.capture(processingUnit, saveState);
+        processingUnit.copyStateTo(snapshot);
+    }
+
+    @Benchmark
+    public ByteBuffer captureSaveState() {
+        SaveState.capture(processingUnit, saveState);
+        return saveState;
+    }
+
+    @Benchmark
+    public ProcessingUnit restoreSaveState() {
+        SaveState.restore(processingUnit, saveState);
+        return processingUnit;
+    }
+
+    @Benchmark
+    public byte[] copyState() {
+        processingUnit.copyStateTo(snapshot);
+        return snapshot;
+    }
+
+    // The frame rows are only written to the state when they changed since the last copy
+    @Benchmark
+    public byte[] copyStateAfterSprite() {
+        frameBuffer.display((byte) 0, (byte) 0, (byte) 0x80, 0);
+        processingUnit.copyStateTo(snapshot);
+        return snapshot;
+    }
+
+    @Benchmark
+    public ProcessingUnit restoreState() {
+        processingUnit.restoreState(snapshot);
+        return processingUnit;
+    }
+}
@@ -0,0 +1,35 @@
+package com.chuyachia.chip8emulator;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+// Where the synthesized samples go, written from the audio thread only
+public interface AudioSink {
+
+    int SAMPLE_RATE = 44_100;
+    // 16 bits signed little endian mono
+    AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+
+    // Drops the samples, the synthesizer keeps them coming at the pace they would be played
+    AudioSink NONE = new AudioSink() {
+        @Override
+        public void write(byte[] samples, int length) {
+        }
+
+        @Override
+        public boolean isPaced() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    void write(byte[] samples, int length) throws IOException;
+
+    // Whether writes wait until the device has room for the samples, the synthesizer keeps the pace itself otherwise
+    boolean isPaced();
+
+    void close() throws IOException;
+}
@@ -0,0 +1,220 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+// Runs independent headless machines in parallel, one fork join task per machine. Machines share no state, the digests
+// of a job only depend on its ROM, cycle budget and input script.
+public class BatchRunner {
+
+    private final static long DEFAULT_CYCLES = 1_000_000;
+    private final static int DEFAULT_CLOCK_RATE = 500;
+    private final static long SEED = 0;
+
+    private final int parallelism;
+    private String engine = CpuEngines.INTERPRETER;
+
+    public BatchRunner(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: BatchRunner <rom>[=<input script>]...");
+            System.out.println("Options: -Dchip8.cycles=<per machine> -Dchip8.clockRate=<Hz> -Dchip8.threads=<count> -Dchip8.engine=<name>");
+            return;
+        }
+
+        long cycles = Long.getLong("chip8.cycles", DEFAULT_CYCLES);
+        // Input scripts count in frames, a higher clock rate runs more instructions between their entries
+        int clockRate = Integer.getInteger("chip8.clockRate", DEFAULT_CLOCK_RATE);
+        List<Job> jobs = parseJobs(args, cycles, clockRate);
+
+        BatchRunner runner = new BatchRunner(Integer.getInteger("chip8.threads", Runtime.getRuntime().availableProcessors()));
+        String engine = CpuEngines.selectedName();
+        if (!runner.setEngine(engine)) {
+            System.out.println(String.format("Unknown engine %s, available engines are %s", engine, CpuEngines.names()));
+            return;
+        }
+        long start = System.nanoTime();
+        List<Result> results = runner.run(jobs);
+        long elapsed = System.nanoTime() - start;
+
+        long instructions = 0;
+        for (Result result : results) {
+            System.out.println(result);
+            instructions += result.instructions;
+        }
+        System.out.println(String.format("%d machines executed %d instructions in %d ms on %d threads, %.1f million instructions per second",
+                results.size(), instructions, elapsed / 1_000_000, runner.parallelism, instructions * 1e3 / elapsed));
+    }
+
+    // False when no engine goes by that name
+    public boolean setEngine(String name) {
+        if (!CpuEngines.names().contains(name)) {
+            return false;
+        }
+
+        this.engine = name;
+        return true;
+    }
+
+    // <rom>[=<input script>] arguments of the headless tools, one job each
+    static List<Job> parseJobs(String[] args, long cycles, int clockRate) throws IOException {
+        List<Job> jobs = new ArrayList<>(args.length);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            Path rom = Paths.get(separator < 0 ? arg : arg.substring(0, separator));
+            InputScript script = separator < 0 ? InputScript.NONE : InputScript.read(Paths.get(arg.substring(separator + 1)));
+            jobs.add(new Job(arg, Files.readAllBytes(rom), cycles, clockRate, script));
+        }
+
+        return jobs;
+    }
+
+    // Results come back in the order of the jobs
+    public List<Result> run(List<Job> jobs) {
+        return runAll(jobs, parallelism, this::run);
+    }
+
+    // One fork join task per job on a pool of the given size, results come back in the order of the jobs
+    static <R> List<R> runAll(List<Job> jobs, int parallelism, Function<Job, R> run) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<R>> tasks = new ArrayList<>(jobs.size());
+            for (Job job : jobs) {
+                tasks.add(pool.submit(() -> run.apply(job)));
+            }
+
+            List<R> results = new ArrayList<>(jobs.size());
+            for (ForkJoinTask<R> task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Result run(Job job) {
+        HeadlessMachine machine = new HeadlessMachine(job.rom, QuirkProfile.forRom(job.rom), job.clockRate, SEED);
+        ProcessingUnit processingUnit = machine.processingUnit;
+        Keyboard keyboard = machine.keyboard;
+        processingUnit.setEngine(engine);
+
+        long start = System.nanoTime();
+        int status = ProcessingUnit.CYCLE_OK;
+        int nextInput = 0;
+        long frame = 0;
+        while (processingUnit.getInstructionCount() < job.cycles) {
+            nextInput = job.script.apply(nextInput, frame, keyboard);
+            status = processingUnit.runFrame();
+            if (status != ProcessingUnit.CYCLE_OK) {
+                break;
+            }
+            frame++;
+
+            // Nothing is going to release a key for a halted CPU anymore
+            if (processingUnit.isWaitingForKey() && !job.script.hasEntriesFrom(nextInput)) {
+                break;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        ByteBuffer state = ByteBuffer.allocate(SaveState.SIZE);
+        SaveState.capture(processingUnit, state);
+        return new Result(job.name, status == ProcessingUnit.CYCLE_OK ? null : processingUnit.describeStatus(status),
+                processingUnit.getInstructionCount(), frame, elapsed, SessionLog.hash(machine.frameBuffer),
+                sha256(state.array(), state.position()));
+    }
+
+    private static String sha256(byte[] bytes, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes, 0, length);
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest()) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Machine with no frontend or speaker, set up the same way by every headless tool. The engine is left to pick.
+    static class HeadlessMachine {
+        final Memory memory = new Memory();
+        final FrameBuffer frameBuffer = new FrameBuffer();
+        final Keyboard keyboard = new Keyboard();
+        final ProcessingUnit processingUnit;
+
+        HeadlessMachine(byte[] rom, QuirkProfile quirkProfile, int clockRate, long seed) {
+            processingUnit = new ProcessingUnit(memory, frameBuffer, keyboard, Frontend.NONE, Speaker.NONE);
+            processingUnit.setQuirkProfile(quirkProfile);
+            memory.loadGame(rom);
+            processingUnit.setClockRate(clockRate);
+            processingUnit.setRandomSeed(seed);
+        }
+    }
+
+    public static class Job {
+        final String name;
+        final byte[] rom;
+        final long cycles;
+        final int clockRate;
+        final InputScript script;
+
+        public Job(String name, byte[] rom, long cycles) {
+            this(name, rom, cycles, DEFAULT_CLOCK_RATE, InputScript.NONE);
+        }
+
+        Job(String name, byte[] rom, long cycles, int clockRate, InputScript script) {
+            this.name = name;
+            this.rom = rom;
+            this.cycles = cycles;
+            this.clockRate = clockRate;
+            this.script = script;
+        }
+    }
+
+    public static class Result {
+        public final String name;
+        // Null when the machine ran through its budget or halted for a key, the reason it stopped otherwise
+        public final String failure;
+        public final long instructions;
+        public final long frames;
+        public final long nanos;
+        // Same hash as the checkpoints of recorded sessions
+        public final long frameDigest;
+        // Of the whole machine state in the save state layout
+        public final String stateDigest;
+
+        Result(String name, String failure, long instructions, long frames, long nanos, long frameDigest, String stateDigest) {
+            this.name = name;
+            this.failure = failure;
+            this.instructions = instructions;
+            this.frames = frames;
+            this.nanos = nanos;
+            this.frameDigest = frameDigest;
+            this.stateDigest = stateDigest;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d instructions in %d frames, frame %016x, state %s%s", name, instructions, frames,
+                    frameDigest, stateDigest, failure == null ? "" : ", " + failure);
+        }
+    }
+}
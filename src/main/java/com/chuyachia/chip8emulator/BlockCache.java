@@ -0,0 +1,211 @@
+package com.chuyachia.chip8emulator;
+
+public class BlockCache {
+
+    final static int MAX_BLOCK_LENGTH = 32;
+
+    private final Memory memory;
+    // Indexed by the address of the first instruction of the block
+    private final Block[] blocks;
+    private boolean fusion = true;
+
+    public BlockCache(Memory memory) {
+        this.memory = memory;
+        this.blocks = new Block[Memory.MEMORY_SIZE];
+    }
+
+    // Instructions are decoded through the table of the quirk profile, which invalidates memory when it changes
+    public Block lookup(int address, Instruction[] decodeTable) {
+        Block block = blocks[address];
+        if (block == null) {
+            block = new Block(address);
+            blocks[address] = block;
+            decode(block, decodeTable);
+        } else if (block.validatedAt != memory.getWriteVersion() && !block.revalidate(memory)) {
+            decode(block, decodeTable);
+        }
+
+        return block;
+    }
+
+    public void clear() {
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = null;
+        }
+    }
+
+    // Blocks decoded from now on pair up frequent instruction sequences or not, the others are dropped
+    void setFusion(boolean enabled) {
+        if (enabled != fusion) {
+            fusion = enabled;
+            clear();
+        }
+    }
+
+
+    // Instructions in the order they run when no skip is taken. Jumps and calls are followed, so a block can span
+    // several memory areas and unroll small loops. Only the last instruction can jump to a target unknown at decode
+    // time, block the cycle loop or write to memory.
+    public static class Block {
+        final int start;
+        final short[] addresses;
+        final short[] opcodes;
+        final Instruction[] instructions;
+        // Operands extracted from the opcodes at decode time
+        final byte[] x;
+        final byte[] y;
+        final byte[] kk;
+        final short[] nnnn;
+        // Instructions after which the PC has to be checked against the address of the next decoded instruction
+        final boolean[] branches;
+        // Set on the first instruction of a pair that runs as one operation with the next one, see fuses
+        final boolean[] fused;
+        int length;
+        private int pageMask;
+        private final int[] pageVersions;
+        private int validatedAt;
+        // Managed by the block compiler, reset whenever the instructions of the block change
+        CompiledBlock compiled;
+        int executions;
+        int compilations;
+
+        Block(int start) {
+            this.start = start;
+            this.addresses = new short[MAX_BLOCK_LENGTH];
+            this.opcodes = new short[MAX_BLOCK_LENGTH];
+            this.instructions = new Instruction[MAX_BLOCK_LENGTH];
+            this.x = new byte[MAX_BLOCK_LENGTH];
+            this.y = new byte[MAX_BLOCK_LENGTH];
+            this.kk = new byte[MAX_BLOCK_LENGTH];
+            this.nnnn = new short[MAX_BLOCK_LENGTH];
+            this.branches = new boolean[MAX_BLOCK_LENGTH];
+            this.fused = new boolean[MAX_BLOCK_LENGTH];
+            this.pageVersions = new int[Memory.PAGE_NUMBER];
+        }
+
+        boolean revalidate(Memory memory) {
+            for (int page = 0; page < Memory.PAGE_NUMBER; page++) {
+                if ((pageMask >>> page & 1) != 0 && memory.getPageVersion(page) != pageVersions[page]) {
+                    return false;
+                }
+            }
+
+            validatedAt = memory.getWriteVersion();
+            return true;
+        }
+    }
+
+    private void decode(Block block, Instruction[] decodeTable) {
+        int address = block.start;
+        int length = 0;
+        int pageMask = 0;
+        // Writes to a page often leave the code on it untouched, compiled code is only dropped on an actual change,
+        // which includes the same opcode decoding to the variant of another quirk profile
+        boolean changed = false;
+        while (length < MAX_BLOCK_LENGTH && address + 1 < Memory.MEMORY_SIZE) {
+            short opcode = (short) ((memory.getByte(address) & 0xff) << 8 | (memory.getByte(address + 1) & 0xff));
+            Instruction instruction = decodeTable[opcode & 0xffff];
+            changed |= length >= block.length || block.opcodes[length] != opcode
+                    || block.instructions[length] != instruction;
+            block.addresses[length] = (short) address;
+            block.opcodes[length] = opcode;
+            block.instructions[length] = instruction;
+            block.x[length] = Instruction.getX(opcode);
+            block.y[length] = Instruction.getY(opcode);
+            block.kk[length] = Instruction.getKk(opcode);
+            block.nnnn[length] = Instruction.getNnnn(opcode);
+            block.branches[length] = isBranch(instruction);
+            pageMask |= 1 << (address / Memory.PAGE_SIZE) | 1 << ((address + 1) / Memory.PAGE_SIZE);
+            length++;
+            if (endsBlock(instruction)) {
+                break;
+            }
+
+            if (instruction == Instruction.JP_ADDR || instruction == Instruction.CALL_ADDR) {
+                address = Instruction.getNnnn(opcode);
+            } else {
+                address += 2;
+            }
+        }
+
+        if (changed || length != block.length) {
+            block.compiled = null;
+            block.executions = 0;
+        }
+        block.length = length;
+        for (int i = 0; i < length; i++) {
+            block.fused[i] = fusion && i + 1 < length && fuses(block, i);
+        }
+        block.pageMask = pageMask;
+        for (int page = 0; page < Memory.PAGE_NUMBER; page++) {
+            block.pageVersions[page] = memory.getPageVersion(page);
+        }
+        block.validatedAt = memory.getWriteVersion();
+    }
+
+    // Frequent pairs, the second instruction always follows the first in memory:
+    // LD I, addr then DRW, SE or SNE Vx, kk then JP addr, ADD Vx, kk or LD Vx, DT then SE on the same register
+    private static boolean fuses(Block block, int i) {
+        Instruction first = block.instructions[i];
+        Instruction second = block.instructions[i + 1];
+        if (first == null || second == null) {
+            return false;
+        }
+
+        boolean sameRegister = block.x[i] == block.x[i + 1];
+        switch (first) {
+            case LD_I_ADDR:
+                return second == Instruction.DRW_VX_VY || second == Instruction.DRW_VX_VY_CLIP;
+            case SE_VX:
+            case SNE_VX:
+                return second == Instruction.JP_ADDR;
+            case ADD_VX:
+            case LD_VX_DT:
+                return second == Instruction.SE_VX && sameRegister;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean endsBlock(Instruction instruction) {
+        if (instruction == null) {
+            return true;
+        }
+
+        switch (instruction) {
+            case RET:
+            case JP_V0_ADDR:
+            case LD_VX_K:
+            case LD_B_VX:
+            case LD_I_VX:
+            case LD_I_VX_TO_LAST:
+            case LD_I_VX_PAST_LAST:
+            case EXIT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isBranch(Instruction instruction) {
+        if (instruction == null) {
+            return false;
+        }
+
+        switch (instruction) {
+            case RET:
+            case JP_ADDR:
+            case CALL_ADDR:
+            case SE_VX:
+            case SNE_VX:
+            case SE_VX_VY:
+            case SNE_VX_VY:
+            case JP_V0_ADDR:
+            case SKP_VX:
+            case SKNP_VX:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.chuyachia.chip8emulator;
+
+import java.nio.ByteBuffer;
+
+// Code is fetched and decoded once into blocks which are then replayed from the block cache until the memory they
+// were decoded from is written to. With the JIT on, hot blocks get compiled to bytecode as well.
+// Frequent pairs of instructions run fused, which lets the block cache alone outrun the interpreter on most ROMs,
+// see EngineBenchmark.
+public class BlockCacheEngine implements CpuEngine {
+
+    private final ProcessingUnit processingUnit;
+    private final Memory memory;
+    private final BlockCache blockCache;
+    // Null without the JIT
+    private final BlockCompiler blockCompiler;
+    private final BlockContext blockContext;
+
+    BlockCacheEngine(ProcessingUnit processingUnit, boolean jit) {
+        this.processingUnit = processingUnit;
+        this.memory = processingUnit.getMemory();
+        this.blockCache = new BlockCache(memory);
+        this.blockCompiler = jit ? new BlockCompiler() : null;
+        this.blockContext = processingUnit.getBlockContext();
+    }
+
+    @Override
+    public String getName() {
+        return blockCompiler != null ? CpuEngines.JIT : CpuEngines.BLOCK_CACHE;
+    }
+
+    @Override
+    public int run(int instructions) {
+        processingUnit.resetIdleLoop();
+        byte[] V = processingUnit.getV();
+        int remaining = instructions;
+        int previousAddress = -1;
+        while (remaining > 0) {
+            // LD Vx, K always ends a block, the halt only needs to be checked in between blocks
+            if (processingUnit.isWaitingForKey() && !processingUnit.resumeFromKeyWait()) {
+                break;
+            }
+            int address = memory.getPC() & 0xffff;
+            if (processingUnit.isIdleLoopSkipping() && address <= previousAddress) {
+                remaining -= processingUnit.skipIdleTurns(remaining);
+                if (remaining == 0) {
+                    break;
+                }
+            }
+            previousAddress = address;
+            BlockCache.Block block = blockCache.lookup(address, processingUnit.getDecodeTable());
+            if (block.length == 0) {
+                // Not even one complete instruction left before the end of memory
+                int status = processingUnit.runInstructionCycle();
+                if (status != ProcessingUnit.CYCLE_OK) {
+                    return status;
+                }
+                processingUnit.retire(1);
+                remaining--;
+                continue;
+            }
+
+            int length = Math.min(block.length, remaining);
+            CompiledBlock compiled = blockCompiler != null ? blockCompiler.compiledFor(block) : null;
+            int executed;
+            if (compiled != null) {
+                executed = compiled.run(blockContext, V, length);
+                if (executed > 0) {
+                    processingUnit.retire(executed);
+                }
+            } else {
+                executed = executeBlock(block, length);
+            }
+            if (executed < 0) {
+                return -executed;
+            }
+            remaining -= executed;
+        }
+
+        return ProcessingUnit.CYCLE_OK;
+    }
+
+    // Runs up to length instructions of the block, stopping after a branch leaving the block. Returns the number
+    // of instructions executed, or the negated status of a failing cycle.
+    // Frequent instructions are dispatched from here on their pre-extracted operands so that their
+    // implementation can be inlined, the others go through execute.
+    // The first instruction of a fused pair also runs the second one when the budget leaves room for both, so that
+    // the count stays exact. Both are retired and the PC is left past them, a taken skip jumps over the second one.
+    private int executeBlock(BlockCache.Block block, int length) {
+        byte[] V = processingUnit.getV();
+        short[] addresses = block.addresses;
+        Instruction[] instructions = block.instructions;
+        boolean[] branches = block.branches;
+        boolean[] fused = block.fused;
+        short[] nnnns = block.nnnn;
+        byte[] xs = block.x;
+        byte[] ys = block.y;
+        byte[] kks = block.kk;
+        int executed = 0;
+        while (executed < length) {
+            boolean branch = branches[executed];
+            boolean last = executed == length - 1;
+            // Instructions in between never look at the PC, it only needs to be right for branches and on exit
+            if (branch || last) {
+                memory.setPC((short) (addresses[executed] + 2));
+            }
+
+            Instruction instructionPattern = instructions[executed];
+            if (instructionPattern == null) {
+                processingUnit.setLastInstruction(block.opcodes[executed]);
+                processingUnit.retire(executed);
+                return -ProcessingUnit.UNKNOWN_INSTRUCTION;
+            }
+
+            byte x = xs[executed];
+            byte y = ys[executed];
+            byte kk = kks[executed];
+            switch (instructionPattern) {
+                case JP_ADDR:
+                    processingUnit.jumpToNnnn(nnnns[executed]);
+                    break;
+                case SE_VX:
+                    // Then JP addr
+                    if (fused[executed] && !last) {
+                        if (V[x] == kk) {
+                            memory.setPC((short) (addresses[executed + 1] + 2));
+                        } else {
+                            memory.setPC(nnnns[++executed]);
+                        }
+                    } else {
+                        processingUnit.skipIfVxKKEqual(x, kk);
+                    }
+                    break;
+                case SNE_VX:
+                    // Then JP addr
+                    if (fused[executed] && !last) {
+                        if (V[x] != kk) {
+                            memory.setPC((short) (addresses[executed + 1] + 2));
+                        } else {
+                            memory.setPC(nnnns[++executed]);
+                        }
+                    } else {
+                        processingUnit.skipIfVxKKNotEqual(x, kk);
+                    }
+                    break;
+                case SE_VX_VY:
+                    processingUnit.skipIfVxVyEqual(x, y);
+                    break;
+                case SNE_VX_VY:
+                    processingUnit.skipIfVxVyNotEqual(x, y);
+                    break;
+                case LD_VX:
+                    processingUnit.setVxToKk(x, kk);
+                    break;
+                case ADD_VX:
+                    processingUnit.addKkToVx(x, kk);
+                    // Then SE Vx, kk
+                    if (fused[executed] && !last) {
+                        branch = true;
+                        executed++;
+                        memory.setPC((short) (addresses[executed] + (V[x] == kks[executed] ? 4 : 2)));
+                    }
+                    break;
+                case LD_VX_VY:
+                    processingUnit.storeVyValueInVx(x, y);
+                    break;
+                case OR_VX_VY:
+                    processingUnit.orVxVy(x, y);
+                    break;
+                case AND_VX_VY:
+                    processingUnit.andVxVy(x, y);
+                    break;
+                case XOR_VX_VY:
+                    processingUnit.xorVxVy(x, y);
+                    break;
+                case ADD_VX_VY:
+                    processingUnit.addVxVy(x, y);
+                    break;
+                case SUB_VX_VY:
+                    processingUnit.subVxVy(x, y);
+                    break;
+                case SHR_VX_VY:
+                    processingUnit.rightShiftVx(x, x);
+                    break;
+                case SHR_VX_FROM_VY:
+                    processingUnit.rightShiftVx(x, y);
+                    break;
+                case SUBN_VX_VY:
+                    processingUnit.subVyVx(x, y);
+                    break;
+                case SHL_VX_VY:
+                    processingUnit.leftShiftVx(x, x);
+                    break;
+                case SHL_VX_FROM_VY:
+                    processingUnit.leftShiftVx(x, y);
+                    break;
+                case LD_I_ADDR:
+                    processingUnit.setIToNnnn(nnnns[executed]);
+                    // Then DRW Vx, Vy, n
+                    if (fused[executed] && !last) {
+                        executed++;
+                        if (instructions[executed] == Instruction.DRW_VX_VY_CLIP) {
+                            processingUnit.displayClippedOnScreen(xs[executed], ys[executed], (byte) (kks[executed] & 0x0f));
+                        } else {
+                            processingUnit.displayOnScreen(xs[executed], ys[executed], (byte) (kks[executed] & 0x0f));
+                        }
+                        memory.setPC((short) (addresses[executed] + 2));
+                    }
+                    break;
+                case RND_VX:
+                    processingUnit.randomByteAndKk(x, kk);
+                    break;
+                case DRW_VX_VY:
+                    processingUnit.displayOnScreen(x, y, (byte) (kk & 0x0f));
+                    break;
+                case DRW_VX_VY_CLIP:
+                    processingUnit.displayClippedOnScreen(x, y, (byte) (kk & 0x0f));
+                    break;
+                case SKP_VX:
+                    processingUnit.skipIfKeyVxPressed(x);
+                    break;
+                case SKNP_VX:
+                    processingUnit.skipIfKeyVxNotPressed(x);
+                    break;
+                case LD_VX_DT:
+                    processingUnit.setVxToDT(x);
+                    // Then SE Vx, kk
+                    if (fused[executed] && !last) {
+                        branch = true;
+                        executed++;
+                        memory.setPC((short) (addresses[executed] + (V[x] == kks[executed] ? 4 : 2)));
+                    }
+                    break;
+                case LD_DT_VX:
+                    processingUnit.setDTtoVx(x);
+                    break;
+                case LD_ST_VX:
+                    processingUnit.setSTtoVx(x);
+                    break;
+                case ADD_I_VX:
+                    processingUnit.addIVx(x);
+                    break;
+                case LD_F_VX:
+                    processingUnit.setISpriteVx(x);
+                    break;
+                default:
+                    int status = processingUnit.execute(block.opcodes[executed], instructionPattern);
+                    if (status != ProcessingUnit.CYCLE_OK) {
+                        processingUnit.setLastInstruction(block.opcodes[executed]);
+                        processingUnit.retire(executed);
+                        return -status;
+                    }
+            }
+            executed++;
+
+            if (branch && executed < length && memory.getPC() != addresses[executed]) {
+                break;
+            }
+        }
+
+        processingUnit.retire(executed);
+        return executed;
+    }
+
+    // Decoding frequent pairs of instructions into one operation is on by default
+    void setFusion(boolean enabled) {
+        blockCache.setFusion(enabled);
+    }
+
+    int getCompiledBlocks() {
+        return blockCompiler != null ? blockCompiler.getCompiledBlocks() : 0;
+    }
+
+    @Override
+    public void saveState(ByteBuffer buffer) {
+        processingUnit.saveTo(buffer);
+    }
+
+    // Restoring memory invalidates every page, the blocks get decoded again
+    @Override
+    public void restoreState(ByteBuffer buffer) {
+        processingUnit.restoreFrom(buffer);
+    }
+
+    public static class Provider implements CpuEngineProvider {
+
+        @Override
+        public String getName() {
+            return CpuEngines.BLOCK_CACHE;
+        }
+
+        @Override
+        public CpuEngine create(ProcessingUnit processingUnit) {
+            return new BlockCacheEngine(processingUnit, false);
+        }
+    }
+
+    public static class JitProvider implements CpuEngineProvider {
+
+        @Override
+        public String getName() {
+            return CpuEngines.JIT;
+        }
+
+        @Override
+        public CpuEngine create(ProcessingUnit processingUnit) {
+            return new BlockCacheEngine(processingUnit, true);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.chuyachia.chip8emulator;
+
+import com.chuyachia.chip8emulator.ClassFileWriter.Code;
+
+import java.lang.reflect.InvocationTargetException;
+
+// Translates hot blocks of the block cache into classes implementing CompiledBlock. Register arithmetic, skips and
+// jumps are emitted as bytecode working on the register array, everything else goes back to the interpreter through
+// BlockContext.execute.
+class BlockCompiler {
+
+    // Executions of a block before it gets compiled
+    final static int HOT_THRESHOLD = 1_000;
+    // Code rewritten more often than this keeps being interpreted
+    final static int MAX_COMPILATIONS = 16;
+
+    private final static String COMPILED_PACKAGE = "com/chuyachia/chip8emulator/compiled/";
+    private final static String OBJECT = "java/lang/Object";
+    private final static String COMPILED_BLOCK = "com/chuyachia/chip8emulator/CompiledBlock";
+    private final static String CONTEXT = "com/chuyachia/chip8emulator/BlockContext";
+    private final static String RUN_DESCRIPTOR = "(Lcom/chuyachia/chip8emulator/BlockContext;[BI)I";
+
+    // Locals of the generated run method
+    private final static int CONTEXT_LOCAL = 1;
+    private final static int V_LOCAL = 2;
+    private final static int LIMIT_LOCAL = 3;
+    private final static int FIRST_LOCAL = 4;
+    private final static int SECOND_LOCAL = 5;
+    private final static int MAX_LOCALS = 6;
+    // Deepest sequence is the array store of a two register operation: V, x, V[x], V, y
+    private final static int MAX_STACK = 5;
+
+    private int compiledBlocks;
+
+    // Counts the execution of the block and returns its compiled code, or null while it is not hot yet
+    // Quirks are compiled in through the variants the block was decoded to, the block cache drops the code when a
+    // profile change decodes them differently
+    CompiledBlock compiledFor(BlockCache.Block block) {
+        if (block.compiled == null && block.compilations < MAX_COMPILATIONS && ++block.executions >= HOT_THRESHOLD) {
+            block.compiled = compile(block);
+            block.compilations++;
+        }
+
+        return block.compiled;
+    }
+
+    int getCompiledBlocks() {
+        return compiledBlocks;
+    }
+
+    CompiledBlock compile(BlockCache.Block block) {
+        String name = String.format("%sBlock%03X_%d", COMPILED_PACKAGE, block.start, compiledBlocks++);
+        ClassFileWriter writer = new ClassFileWriter(name, OBJECT, COMPILED_BLOCK);
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", constructor(writer));
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "run", RUN_DESCRIPTOR, new Emitter(writer, block).emit());
+
+        JitClassLoader loader = new JitClassLoader(CompiledBlock.class.getClassLoader());
+        try {
+            Class<?> compiledClass = loader.define(name.replace('/', '.'), writer.toByteArray());
+            return (CompiledBlock) compiledClass.getDeclaredConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            throw new IllegalStateException(String.format("Could not instantiate compiled block %s", name), e);
+        }
+    }
+
+    private static Code constructor(ClassFileWriter writer) {
+        Code code = new Code(1, 1);
+        code.loadReference(0);
+        code.invoke(Code.INVOKESPECIAL, writer.methodRef(OBJECT, "<init>", "()V"));
+        code.op(Code.RETURN);
+        return code;
+    }
+
+    private static class Emitter {
+        private final ClassFileWriter writer;
+        private final BlockCache.Block block;
+        private final Code code;
+
+        Emitter(ClassFileWriter writer, BlockCache.Block block) {
+            this.writer = writer;
+            this.block = block;
+            this.code = new Code(MAX_STACK, MAX_LOCALS);
+        }
+
+        Code emit() {
+            for (int i = 0; i < block.length; i++) {
+                if (i > 0) {
+                    // The caller may ask for fewer instructions than the block holds
+                    int proceed = code.newLabel();
+                    code.loadLocal(LIMIT_LOCAL);
+                    code.pushInt(i);
+                    code.jump(Code.IF_ICMPNE, proceed);
+                    exit(block.addresses[i] & 0xffff, i);
+                    code.mark(proceed);
+                }
+                emitInstruction(i);
+            }
+
+            return code;
+        }
+
+        private void emitInstruction(int i) {
+            Instruction instruction = block.instructions[i];
+            int address = block.addresses[i] & 0xffff;
+            int executed = i + 1;
+            boolean last = executed == block.length;
+            int x = block.x[i];
+            int y = block.y[i];
+            int kk = block.kk[i];
+
+            if (instruction == null) {
+                fallback(i);
+                return;
+            }
+
+            switch (instruction) {
+                case JP_ADDR:
+                    // The block carries on at the target, the PC only has to be written when leaving here
+                    if (last) {
+                        exit(block.nnnn[i] & 0xffff, executed);
+                    }
+                    return;
+                case SE_VX:
+                    loadV(x);
+                    code.pushInt(kk);
+                    skip(Code.IF_ICMPNE, address, executed);
+                    break;
+                case SNE_VX:
+                    loadV(x);
+                    code.pushInt(kk);
+                    skip(Code.IF_ICMPEQ, address, executed);
+                    break;
+                case SE_VX_VY:
+                    loadV(x);
+                    loadV(y);
+                    skip(Code.IF_ICMPNE, address, executed);
+                    break;
+                case SNE_VX_VY:
+                    loadV(x);
+                    loadV(y);
+                    skip(Code.IF_ICMPEQ, address, executed);
+                    break;
+                case SKP_VX:
+                    code.loadReference(CONTEXT_LOCAL);
+                    loadV(x);
+                    invokeContext("isKeyPressed", "(B)Z", 1);
+                    skip(Code.IFEQ, address, executed);
+                    break;
+                case SKNP_VX:
+                    code.loadReference(CONTEXT_LOCAL);
+                    loadV(x);
+                    invokeContext("isKeyPressed", "(B)Z", 1);
+                    skip(Code.IFNE, address, executed);
+                    break;
+                case LD_VX:
+                    // Array stores keep the low byte, no explicit narrowing is needed
+                    startStoreV(x);
+                    code.pushInt(kk);
+                    code.op(Code.BASTORE);
+                    break;
+                case ADD_VX:
+                    startStoreV(x);
+                    loadV(x);
+                    code.pushInt(kk);
+                    code.op(Code.IADD);
+                    code.op(Code.BASTORE);
+                    break;
+                case LD_VX_VY:
+                    startStoreV(x);
+                    loadV(y);
+                    code.op(Code.BASTORE);
+                    break;
+                case OR_VX_VY:
+                    binaryV(x, y, Code.IOR);
+                    break;
+                case AND_VX_VY:
+                    binaryV(x, y, Code.IAND);
+                    break;
+                case XOR_VX_VY:
+                    binaryV(x, y, Code.IXOR);
+                    break;
+                case ADD_VX_VY:
+                    // VF = sum >> 8, then Vx = sum
+                    loadUnsignedV(x);
+                    loadUnsignedV(y);
+                    code.op(Code.IADD);
+                    code.storeLocal(FIRST_LOCAL);
+                    startStoreV(0xf);
+                    code.loadLocal(FIRST_LOCAL);
+                    code.pushInt(8);
+                    code.op(Code.ISHR);
+                    code.op(Code.BASTORE);
+                    startStoreV(x);
+                    code.loadLocal(FIRST_LOCAL);
+                    code.op(Code.BASTORE);
+                    break;
+                case SUB_VX_VY:
+                    subtract(x, y, false);
+                    break;
+                case SUBN_VX_VY:
+                    subtract(x, y, true);
+                    break;
+                case SHR_VX_VY:
+                case SHR_VX_FROM_VY:
+                    // VF is written first and the source read again afterwards, as the interpreter does when it is F
+                    int shifted = instruction == Instruction.SHR_VX_FROM_VY ? y : x;
+                    startStoreV(0xf);
+                    loadV(shifted);
+                    code.pushInt(1);
+                    code.op(Code.IAND);
+                    code.op(Code.BASTORE);
+                    startStoreV(x);
+                    loadUnsignedV(shifted);
+                    code.pushInt(1);
+                    code.op(Code.IUSHR);
+                    code.op(Code.BASTORE);
+                    break;
+                case SHL_VX_VY:
+                case SHL_VX_FROM_VY:
+                    shifted = instruction == Instruction.SHL_VX_FROM_VY ? y : x;
+                    startStoreV(0xf);
+                    loadV(shifted);
+                    code.pushInt(7);
+                    code.op(Code.ISHR);
+                    code.pushInt(1);
+                    code.op(Code.IAND);
+                    code.op(Code.BASTORE);
+                    startStoreV(x);
+                    loadV(shifted);
+                    code.pushInt(1);
+                    code.op(Code.ISHL);
+                    code.op(Code.BASTORE);
+                    break;
+                case LD_I_ADDR:
+                    code.loadReference(CONTEXT_LOCAL);
+                    code.pushInt(block.nnnn[i] & 0xffff);
+                    invokeContext("setI", "(I)V", 1);
+                    break;
+                case ADD_I_VX:
+                    code.loadReference(CONTEXT_LOCAL);
+                    code.loadReference(CONTEXT_LOCAL);
+                    invokeContext("getI", "()I", 0);
+                    loadUnsignedV(x);
+                    code.op(Code.IADD);
+                    invokeContext("setI", "(I)V", 1);
+                    break;
+                case LD_F_VX:
+                    code.loadReference(CONTEXT_LOCAL);
+                    loadUnsignedV(x);
+                    code.pushInt(Memory.SPRITE_SIZE);
+                    code.op(Code.IMUL);
+                    invokeContext("setI", "(I)V", 1);
+                    break;
+                case RND_VX:
+                    startStoreV(x);
+                    code.loadReference(CONTEXT_LOCAL);
+                    invokeContext("randomByte", "()I", 0);
+                    code.pushInt(kk);
+                    code.op(Code.IAND);
+                    code.op(Code.BASTORE);
+                    break;
+                case DRW_VX_VY:
+                    code.loadReference(CONTEXT_LOCAL);
+                    code.pushInt(x);
+                    code.pushInt(y);
+                    code.pushInt(kk & 0x0f);
+                    invokeContext("draw", "(BBB)V", 3);
+                    break;
+                case DRW_VX_VY_CLIP:
+                    code.loadReference(CONTEXT_LOCAL);
+                    code.pushInt(x);
+                    code.pushInt(y);
+                    code.pushInt(kk & 0x0f);
+                    invokeContext("drawClipped", "(BBB)V", 3);
+                    break;
+                case LD_VX_DT:
+                    startStoreV(x);
+                    code.loadReference(CONTEXT_LOCAL);
+                    invokeContext("getDT", "()B", 0);
+                    code.op(Code.BASTORE);
+                    break;
+                case LD_DT_VX:
+                    code.loadReference(CONTEXT_LOCAL);
+                    loadV(x);
+                    invokeContext("setDT", "(B)V", 1);
+                    break;
+                case LD_ST_VX:
+                    code.loadReference(CONTEXT_LOCAL);
+                    loadV(x);
+                    invokeContext("setST", "(B)V", 1);
+                    break;
+                default:
+                    fallback(i);
+                    return;
+            }
+
+            if (last) {
+                exit(address + 2, executed);
+            }
+        }
+
+        // Leaves the block past the next instruction when the condition on the stack does not hold
+        private void skip(int notTakenJump, int address, int executed) {
+            int notTaken = code.newLabel();
+            code.jump(notTakenJump, notTaken);
+            exit(address + 4, executed);
+            code.mark(notTaken);
+        }
+
+        // The interpreter runs the instruction with the PC past it, as after a fetch. Jumps, calls and returns
+        // leave the PC where the block goes on, so nothing is left to write once it succeeded.
+        private void fallback(int i) {
+            int executed = i + 1;
+            code.loadReference(CONTEXT_LOCAL);
+            code.pushInt((block.addresses[i] & 0xffff) + 2);
+            invokeContext("setPC", "(I)V", 1);
+            code.loadReference(CONTEXT_LOCAL);
+            code.pushInt(block.opcodes[i]);
+            invokeContext("execute", "(S)I", 1);
+            code.storeLocal(FIRST_LOCAL);
+
+            int succeeded = code.newLabel();
+            code.loadLocal(FIRST_LOCAL);
+            code.jump(Code.IFEQ, succeeded);
+            code.loadReference(CONTEXT_LOCAL);
+            code.pushInt(i);
+            invokeContext("retire", "(I)V", 1);
+            code.loadLocal(FIRST_LOCAL);
+            code.op(Code.INEG);
+            code.op(Code.IRETURN);
+            code.mark(succeeded);
+
+            if (executed == block.length) {
+                code.pushInt(executed);
+                code.op(Code.IRETURN);
+            }
+        }
+
+        private void exit(int pc, int executed) {
+            code.loadReference(CONTEXT_LOCAL);
+            code.pushInt(pc);
+            invokeContext("setPC", "(I)V", 1);
+            code.pushInt(executed);
+            code.op(Code.IRETURN);
+        }
+
+        // Vx = (Vx & 0xff) - (Vy & 0xff), VF = 1 when the subtraction does not borrow. Reversed for SUBN.
+        private void subtract(int x, int y, boolean reversed) {
+            int minuend = reversed ? SECOND_LOCAL : FIRST_LOCAL;
+            int subtrahend = reversed ? FIRST_LOCAL : SECOND_LOCAL;
+            loadUnsignedV(x);
+            code.storeLocal(FIRST_LOCAL);
+            loadUnsignedV(y);
+            code.storeLocal(SECOND_LOCAL);
+            // Strictly greater minuend makes the reversed difference negative
+            startStoreV(0xf);
+            code.loadLocal(subtrahend);
+            code.loadLocal(minuend);
+            code.op(Code.ISUB);
+            code.pushInt(31);
+            code.op(Code.IUSHR);
+            code.op(Code.BASTORE);
+            startStoreV(x);
+            code.loadLocal(minuend);
+            code.loadLocal(subtrahend);
+            code.op(Code.ISUB);
+            code.op(Code.BASTORE);
+        }
+
+        private void binaryV(int x, int y, int operation) {
+            startStoreV(x);
+            loadV(x);
+            loadV(y);
+            code.op(operation);
+            code.op(Code.BASTORE);
+        }
+
+        private void startStoreV(int register) {
+            code.loadReference(V_LOCAL);
+            code.pushInt(register);
+        }
+
+        private void loadV(int register) {
+            code.loadReference(V_LOCAL);
+            code.pushInt(register);
+            code.op(Code.BALOAD);
+        }
+
+        private void loadUnsignedV(int register) {
+            loadV(register);
+            code.pushInt(0xff);
+            code.op(Code.IAND);
+        }
+
+        private void invokeContext(String name, String descriptor, int arguments) {
+            code.invokeInterface(writer.interfaceMethodRef(CONTEXT, name, descriptor), arguments);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.chuyachia.chip8emulator;
+
+// Machine state a compiled block cannot reach through the register array it is given
+public interface BlockContext {
+
+    void setPC(int address);
+
+    int getI();
+
+    void setI(int value);
+
+    byte getDT();
+
+    void setDT(byte value);
+
+    void setST(byte value);
+
+    boolean isKeyPressed(byte key);
+
+    int randomByte();
+
+    void draw(byte x, byte y, byte n);
+
+    void drawClipped(byte x, byte y, byte n);
+
+    // Runs an instruction the compiler does not translate through the interpreter and returns its status
+    int execute(short opcode);
+
+    // Counts instructions executed before a failing one, which the caller never gets to see
+    void retire(int instructions);
+}
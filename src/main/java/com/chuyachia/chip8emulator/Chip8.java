@@ -5,19 +5,35 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class Chip8 {
 
     private final Memory memory;
-    private final Screen screen;
+    private final FrameBuffer frameBuffer;
     private final Keyboard keyboard;
     private final ProcessingUnit processingUnit;
-
+    // Game loaded as is, sessions can only be recorded from the start of a game
+    private byte[] game;
+    private Path recordingPath;
+    private Profiler profiler;
+    private Path profilePath;
+    // Null to pick the profile from the ROM
+    private QuirkProfile quirkProfile;
+
+    // Headless machine, nothing is displayed and no sound is played
     public Chip8() {
+        this(new FrameBuffer(), Frontend.NONE, Speaker.NONE);
+    }
+
+    public Chip8(FrameBuffer frameBuffer, Frontend frontend, Speaker speaker) {
         memory = new Memory();
-        screen = new Screen();
+        this.frameBuffer = frameBuffer;
         keyboard = new Keyboard();
-        processingUnit = new ProcessingUnit(memory, screen, keyboard);
+        processingUnit = new ProcessingUnit(memory, frameBuffer, keyboard, frontend, speaker);
     }
 
 
@@ -26,31 +42,133 @@ public class Chip8 {
     }
 
     public void loadGame(byte[] bytes) {
+        processingUnit.setQuirkProfile(quirkProfile != null ? quirkProfile : QuirkProfile.forRom(bytes));
         memory.loadGame(bytes);
+        game = bytes;
     }
 
     public void startEmulation() {
         keyboard.escapePressed.set(false);
+        SessionLog sessionLog = startRecording();
         processingUnit.start();
+        game = null;
+        if (profiler != null) {
+            writeProfile();
+            profiler.clear();
+        }
+        if (sessionLog != null) {
+            processingUnit.setSessionLog(null);
+            try {
+                sessionLog.write(recordingPath);
+                System.out.println(String.format("Session of %d frames recorded to %s", sessionLog.getFrames(),
+                        recordingPath));
+            } catch (IOException e) {
+                System.out.println(String.format("Could not write the recorded session: %s", e.getMessage()));
+            }
+        }
+    }
+
+    private SessionLog startRecording() {
+        if (recordingPath == null) {
+            return null;
+        }
+        if (game == null) {
+            System.out.println("Games restored from a save are not recorded");
+            return null;
+        }
+
+        SessionLog sessionLog = new SessionLog(System.nanoTime(), processingUnit.getClockRate(), SessionLog.romCrc(game),
+                processingUnit.getQuirkProfile());
+        processingUnit.setRandomSeed(sessionLog.getSeed());
+        processingUnit.setSessionLog(sessionLog);
+        return sessionLog;
     }
 
-    public Screen getScreen() {
-        return screen;
+    public long runCycles(long cycles) {
+        long executed = processingUnit.runCycles(cycles);
+        if (profiler != null) {
+            profiler.captureCode(memory);
+        }
+        return executed;
     }
 
-    public int getScreenScaleFactor() {
-        return screen.getScaleFactor();
+    // Instructions counted as executed without being run, in loops waiting for the timers or the keys
+    public long getIdleInstructionCount() {
+        return processingUnit.getIdleInstructionCount();
     }
 
-    public void setScreenScaleFactor(int factor) {
-        screen.setScaleFactor(factor);
+    public FrameBuffer getFrameBuffer() {
+        return frameBuffer;
+    }
+
+    public Keyboard getKeyboard() {
+        return keyboard;
+    }
+
+    ProcessingUnit getProcessingUnit() {
+        return processingUnit;
     }
 
     public void setClockRate(int rate) {
         this.processingUnit.setClockRate(rate);
     }
 
+    public void setTurbo(boolean turbo) {
+        this.processingUnit.setTurbo(turbo);
+    }
+
+    // Games loaded from then on run with the given profile, null picks it from the ROM
+    public void setQuirkProfile(QuirkProfile profile) {
+        quirkProfile = profile;
+    }
+
+    // False when no engine goes by that name, see CpuEngines
+    public boolean setEngine(String name) {
+        return processingUnit.setEngine(name);
+    }
+
+    public String getEngine() {
+        return processingUnit.getEngine().getName();
+    }
+
+    void setFrameMetrics(FrameMetrics frameMetrics) {
+        processingUnit.setFrameMetrics(frameMetrics);
+    }
+
+    // Runs every frame through the profiling interpreter and writes a report to the given file when a session ends,
+    // null turns profiling off
+    public void setProfilePath(Path path) {
+        profilePath = path;
+        profiler = path == null ? null : new Profiler();
+        processingUnit.setProfiler(profiler);
+    }
+
+    public void writeProfile() {
+        try (Writer writer = Files.newBufferedWriter(profilePath)) {
+            profiler.writeReport(writer);
+            System.out.println(String.format("Profile written to %s", profilePath));
+        } catch (IOException e) {
+            System.out.println(String.format("Could not write the profile: %s", e.getMessage()));
+        }
+    }
+
+    // Sessions started after this get recorded to the given file for replay, null stops recording
+    public void setRecordingPath(Path path) {
+        this.recordingPath = path;
+    }
+
     public void restoreSavedGame(File file) throws IOException, ClassNotFoundException {
+        game = null;
+        ByteBuffer saveState = SaveState.read(file.toPath());
+        if (saveState != null) {
+            SaveState.restore(processingUnit, saveState);
+        } else {
+            restoreSerializedGame(file);
+        }
+    }
+
+    // Save files written with object serialization before the binary format
+    private void restoreSerializedGame(File file) throws IOException, ClassNotFoundException {
         try (FileInputStream fileInputStream = new FileInputStream(file);
              ObjectInput objectInput = new ObjectInputStream(fileInputStream)) {
             byte[] V = (byte[]) objectInput.readObject();
@@ -72,9 +190,9 @@ public class Chip8 {
             this.memory.setPC(PC);
             this.memory.setMemory(memory);
 
-            this.screen.setPixels(pixels);
-            this.screen.setRepaintFlag(true);
-            this.screen.setCollision(collision);
+            this.frameBuffer.setPixels(pixels);
+            this.frameBuffer.setRepaintFlag(true);
+            this.frameBuffer.setCollision(collision);
         }
     }
 }
@@ -0,0 +1,306 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes just enough of the class file format for the block compiler. Classes are written as version 49 (Java 5)
+// so that the JVM verifies them by type inference and no stack map frames have to be computed.
+class ClassFileWriter {
+
+    private final static int MAGIC = 0xCAFEBABE;
+    private final static int MAJOR_VERSION = 49;
+
+    final static int ACC_PUBLIC = 0x0001;
+    final static int ACC_FINAL = 0x0010;
+    final static int ACC_SUPER = 0x0020;
+
+    private final static int CONSTANT_UTF8 = 1;
+    private final static int CONSTANT_CLASS = 7;
+    private final static int CONSTANT_METHOD_REF = 10;
+    private final static int CONSTANT_INTERFACE_METHOD_REF = 11;
+    private final static int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream constantPool = new ByteArrayOutputStream();
+    private final DataOutputStream constants = new DataOutputStream(constantPool);
+    private final Map<String, Integer> constantIndexes = new HashMap<>();
+    private int constantCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+    private final int[] interfaces;
+    private final List<byte[]> methods = new ArrayList<>();
+
+    ClassFileWriter(String name, String superName, String... interfaceNames) {
+        thisClass = classRef(name);
+        superClass = classRef(superName);
+        interfaces = new int[interfaceNames.length];
+        for (int i = 0; i < interfaceNames.length; i++) {
+            interfaces[i] = classRef(interfaceNames[i]);
+        }
+    }
+
+    int utf8(String value) {
+        return constant("U" + value, out -> {
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, out -> {
+            out.writeByte(CONSTANT_CLASS);
+            out.writeShort(name);
+        });
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHOD_REF, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_INTERFACE_METHOD_REF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + ' ' + descriptor, out -> {
+            out.writeByte(CONSTANT_NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+
+        return constant(tag + owner + '.' + name + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int constant(String key, ConstantWriter writer) {
+        Integer index = constantIndexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            writer.write(constants);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        constantIndexes.put(key, constantCount);
+        return constantCount++;
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            byte[] instructions = code.toByteArray();
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            // Only attribute is Code
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            // max_stack, max_locals, code_length, code, no exception table and no attributes
+            out.writeInt(2 + 2 + 4 + instructions.length + 2 + 2);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(instructions.length);
+            out.write(instructions);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(constantCount);
+            constants.flush();
+            constantPool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int anInterface : interfaces) {
+                out.writeShort(anInterface);
+            }
+            // No fields
+            out.writeShort(0);
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            // No class attributes
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private interface ConstantWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Bytecode of a single method. Branches go to labels which are patched once the code is complete.
+    static class Code {
+        final static int ILOAD = 0x15;
+        final static int ALOAD = 0x19;
+        final static int ISTORE = 0x36;
+        final static int BIPUSH = 0x10;
+        final static int SIPUSH = 0x11;
+        final static int ICONST_0 = 0x03;
+        final static int BALOAD = 0x33;
+        final static int BASTORE = 0x54;
+        final static int IADD = 0x60;
+        final static int ISUB = 0x64;
+        final static int INEG = 0x74;
+        final static int IMUL = 0x68;
+        final static int ISHL = 0x78;
+        final static int ISHR = 0x7a;
+        final static int IUSHR = 0x7c;
+        final static int IAND = 0x7e;
+        final static int IOR = 0x80;
+        final static int IXOR = 0x82;
+        final static int I2B = 0x91;
+        final static int IFEQ = 0x99;
+        final static int IFNE = 0x9a;
+        final static int IF_ICMPEQ = 0x9f;
+        final static int IF_ICMPNE = 0xa0;
+        final static int IRETURN = 0xac;
+        final static int RETURN = 0xb1;
+        final static int INVOKESPECIAL = 0xb7;
+        final static int INVOKEINTERFACE = 0xb9;
+
+        private final int maxStack;
+        private final int maxLocals;
+        private byte[] code = new byte[256];
+        private int length;
+        private int[] labels = new int[16];
+        private int labelCount;
+        // Pairs of branch offset position and label
+        private int[] fixups = new int[32];
+        private int fixupCount;
+
+        // The block compiler emits fixed instruction sequences, the stack depth they need is known up front
+        Code(int maxStack, int maxLocals) {
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        void op(int opcode) {
+            put(opcode);
+        }
+
+        void local(int opcode, int index) {
+            put(opcode);
+            put(index);
+        }
+
+        void loadLocal(int index) {
+            local(ILOAD, index);
+        }
+
+        void loadReference(int index) {
+            local(ALOAD, index);
+        }
+
+        void storeLocal(int index) {
+            local(ISTORE, index);
+        }
+
+        void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                put(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                put(BIPUSH);
+                put(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                put(SIPUSH);
+                putShort(value);
+            } else {
+                throw new IllegalArgumentException(String.format("Constant %d does not fit a push instruction", value));
+            }
+        }
+
+        void invoke(int opcode, int methodRef) {
+            put(opcode);
+            putShort(methodRef);
+        }
+
+        void invokeInterface(int methodRef, int argumentSlots) {
+            put(INVOKEINTERFACE);
+            putShort(methodRef);
+            // Count includes the receiver
+            put(argumentSlots + 1);
+            put(0);
+        }
+
+        int newLabel() {
+            if (labelCount == labels.length) {
+                labels = Arrays.copyOf(labels, labelCount * 2);
+            }
+            labels[labelCount] = -1;
+            return labelCount++;
+        }
+
+        void mark(int label) {
+            labels[label] = length;
+        }
+
+        void jump(int opcode, int label) {
+            if (fixupCount + 2 > fixups.length) {
+                fixups = Arrays.copyOf(fixups, fixups.length * 2);
+            }
+            fixups[fixupCount++] = length;
+            fixups[fixupCount++] = label;
+            put(opcode);
+            putShort(0);
+        }
+
+        byte[] toByteArray() {
+            for (int i = 0; i < fixupCount; i += 2) {
+                int position = fixups[i];
+                int target = labels[fixups[i + 1]];
+                if (target < 0) {
+                    throw new IllegalStateException(String.format("Label %d was never marked", fixups[i + 1]));
+                }
+                int offset = target - position;
+                code[position + 1] = (byte) (offset >> 8);
+                code[position + 2] = (byte) offset;
+            }
+
+            return Arrays.copyOf(code, length);
+        }
+
+        private void putShort(int value) {
+            put(value >> 8);
+            put(value);
+        }
+
+        private void put(int value) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, length * 2);
+            }
+            code[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.chuyachia.chip8emulator;
+
+// Implemented by the classes the block compiler generates. Public because those classes live in their own
+// class loader and cannot see package private types.
+public interface CompiledBlock {
+
+    // Runs at most limit instructions of the block, returns the number of instructions executed or the negated
+    // status of a failing cycle
+    int run(BlockContext context, byte[] V, int limit);
+}
@@ -0,0 +1,26 @@
+package com.chuyachia.chip8emulator;
+
+import java.nio.ByteBuffer;
+
+// Runs the instructions of a ProcessingUnit. The processing unit keeps the machine state, the timers and the frame
+// loop, an engine only decides how the instructions of a frame get executed and must leave the machine in the same
+// state as the interpreter would. Engines are looked up by name through CpuEngineProvider, see CpuEngines.
+interface CpuEngine {
+
+    // Name the engine is selected by
+    String getName();
+
+    // Runs up to the given number of instructions, fewer when the CPU halts for a key. Returns CYCLE_OK or the status
+    // of the instruction that failed, see ProcessingUnit.describeStatus.
+    int run(int instructions);
+
+    default int step() {
+        return run(1);
+    }
+
+    // Registers, memory and frame buffer in the save state layout, the same for every engine so that a machine can
+    // change engine in between
+    void saveState(ByteBuffer buffer);
+
+    void restoreState(ByteBuffer buffer);
+}
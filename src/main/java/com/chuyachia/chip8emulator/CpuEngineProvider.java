@@ -0,0 +1,10 @@
+package com.chuyachia.chip8emulator;
+
+// Registered in META-INF/services and loaded by CpuEngines. Engines reach into the package-private parts of
+// ProcessingUnit, so only the engines of this package can implement it.
+interface CpuEngineProvider {
+
+    String getName();
+
+    CpuEngine create(ProcessingUnit processingUnit);
+}
@@ -0,0 +1,57 @@
+package com.chuyachia.chip8emulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+// Engines available on the class path
+final class CpuEngines {
+
+    final static String INTERPRETER = "interpreter";
+    final static String BLOCK_CACHE = "blockCache";
+    final static String JIT = "jit";
+
+    private final static List<CpuEngineProvider> PROVIDERS = load();
+
+    private CpuEngines() {
+    }
+
+    private static List<CpuEngineProvider> load() {
+        List<CpuEngineProvider> providers = new ArrayList<>();
+        for (CpuEngineProvider provider : ServiceLoader.load(CpuEngineProvider.class)) {
+            providers.add(provider);
+        }
+
+        return providers;
+    }
+
+    static List<String> names() {
+        List<String> names = new ArrayList<>(PROVIDERS.size());
+        for (CpuEngineProvider provider : PROVIDERS) {
+            names.add(provider.getName());
+        }
+
+        return names;
+    }
+
+    // Null when no engine goes by that name
+    static CpuEngineProvider provider(String name) {
+        for (CpuEngineProvider provider : PROVIDERS) {
+            if (provider.getName().equals(name)) {
+                return provider;
+            }
+        }
+
+        return null;
+    }
+
+    static CpuEngine create(String name, ProcessingUnit processingUnit) {
+        CpuEngineProvider provider = provider(name);
+        return provider == null ? null : provider.create(processingUnit);
+    }
+
+    // -Dchip8.engine=<name>, -Dchip8.jit=true is still understood as the JIT
+    static String selectedName() {
+        return System.getProperty("chip8.engine", Boolean.getBoolean("chip8.jit") ? JIT : INTERPRETER);
+    }
+}
@@ -2,18 +2,75 @@ package com.chuyachia.chip8emulator;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 public class Emulator {
     public static void main(String[] args) {
-        Chip8 chip8 = new Chip8();
-        Home home = new Home(chip8);
+        FrameBuffer frameBuffer = new FrameBuffer();
+        Screen screen = new Screen(frameBuffer);
+        SquareWaveSpeaker speaker = openSpeaker();
+        Chip8 chip8 = new Chip8(frameBuffer, screen, speaker);
+        // -Dchip8.engine=<name> runs the games on another engine, it can also be changed on the home panel
+        HeadlessEmulator.selectEngine(chip8.getProcessingUnit());
+        chip8.setQuirkProfile(HeadlessEmulator.selectedQuirkProfile());
+        // -Dchip8.record=<file> records each game played for HeadlessEmulator to replay
+        String recording = System.getProperty("chip8.record");
+        if (recording != null) {
+            chip8.setRecordingPath(Paths.get(recording));
+        }
+        // -Dchip8.profile=<file> writes an execution profile of each game played
+        String profile = System.getProperty("chip8.profile");
+        if (profile != null) {
+            chip8.setProfilePath(Paths.get(profile));
+        }
+        // Frame timing is always published over JMX, -Dchip8.stats.port=<port> serves it on localhost as well
+        FrameMetrics frameMetrics = new FrameMetrics();
+        chip8.setFrameMetrics(frameMetrics);
+        screen.setFrameMetrics(frameMetrics);
+        frameMetrics.register();
+        Integer statsPort = Integer.getInteger("chip8.stats.port");
+        if (statsPort != null) {
+            startStatsServer(frameMetrics, statsPort);
+        }
+        new KeyboardListener(chip8.getKeyboard());
+        Home home = new Home(chip8, screen);
 
         JFrame frame= prepareFrame();
         frame.getContentPane().add(Home.PANEL_NAME, home);
-        frame.getContentPane().add(Screen.PANEL_NAME, chip8.getScreen());
+        frame.getContentPane().add(Screen.PANEL_NAME, screen);
         frame.pack();
     }
 
+    // -Dchip8.audio.wav=<file> captures the sound to a WAV file instead of playing it
+    private static SquareWaveSpeaker openSpeaker() {
+        String capture = System.getProperty("chip8.audio.wav");
+        if (capture == null) {
+            return SquareWaveSpeaker.open();
+        }
+
+        try {
+            SquareWaveSpeaker speaker = new SquareWaveSpeaker(new WavSink(Paths.get(capture)));
+            // The window closes through System.exit, the header of the file still has to be completed
+            Runtime.getRuntime().addShutdownHook(new Thread(speaker::close));
+            return speaker;
+        } catch (IOException e) {
+            System.out.println(String.format("Could not capture the sound: %s", e.getMessage()));
+            return SquareWaveSpeaker.open();
+        }
+    }
+
+    private static void startStatsServer(FrameMetrics frameMetrics, int port) {
+        try {
+            StatsServer statsServer = new StatsServer(frameMetrics, port);
+            statsServer.start();
+            System.out.println(String.format("Frame metrics served on http://localhost:%d%s", statsServer.getPort(),
+                    StatsServer.PATH));
+        } catch (IOException e) {
+            System.out.println(String.format("Could not serve the frame metrics: %s", e.getMessage()));
+        }
+    }
+
     private static JFrame prepareFrame() {
         JFrame frame = new JFrame("Chip8 Emulator");
         Container container = frame.getContentPane();
@@ -0,0 +1,342 @@
+package com.chuyachia.chip8emulator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class FrameBuffer {
+
+    public static final int WIDTH = 64;
+    public static final int HEIGHT = 32;
+    // SUPER-CHIP high resolution
+    public static final int HIRES_WIDTH = 128;
+    public static final int HIRES_HEIGHT = 64;
+    // Room for the rows of either resolution
+    public static final int WORDS = HIRES_HEIGHT * 2;
+    public static final int BYTE_SIZE = 8;
+    private static final int SCROLL_PIXELS = 4;
+    // Collision and resolution are kept in a machine state, see MachineState. The collision is a flag in low
+    // resolution and the number of rows of the last sprite that collided or were clipped at the bottom in high
+    // resolution, as on SUPER-CHIP 1.1.
+    private byte[] state;
+    // Every sprite row reads and writes them, so like the PC they stay in a field while the machine runs. storeRows
+    // writes them to the machine state before it gets copied or compared and loadRows reads them back after a
+    // restore. The leftmost pixel is in the most significant bit. In low resolution a row is one word and only the
+    // first HEIGHT words are used, in high resolution a row is two words, its left half first.
+    private final long[] rows;
+    // The machine state, for reading and writing its rows a word at a time
+    private ByteBuffer stateBuffer;
+    // Whether the rows changed since they were last stored or loaded
+    private boolean rowsChanged;
+    // Frames as they get displayed, written and read by different threads
+    private final FrameExchange exchange;
+    // Rows handed to the exchange, only used by publish
+    private final long[] frame;
+    private boolean repaintFlag;
+
+    public FrameBuffer() {
+        this.state = MachineState.allocate();
+        this.rows = new long[WORDS];
+        this.stateBuffer = ByteBuffer.wrap(state);
+        this.exchange = new FrameExchange(WORDS);
+        this.frame = new long[WORDS];
+    }
+
+    // Moves the frame into the state of the machine the frame buffer is part of
+    void bind(byte[] machineState) {
+        System.arraycopy(state, MachineState.COLLISION, machineState, MachineState.COLLISION,
+                MachineState.SIZE - MachineState.COLLISION);
+        state = machineState;
+        stateBuffer = ByteBuffer.wrap(machineState);
+        rowsChanged = true;
+        storeRows();
+    }
+
+    void storeRows() {
+        if (rowsChanged) {
+            for (int i = 0; i < WORDS; i++) {
+                stateBuffer.putLong(MachineState.ROWS + i * Long.BYTES, rows[i]);
+            }
+            rowsChanged = false;
+        }
+    }
+
+    void loadRows() {
+        for (int i = 0; i < WORDS; i++) {
+            rows[i] = stateBuffer.getLong(MachineState.ROWS + i * Long.BYTES);
+        }
+        rowsChanged = false;
+    }
+
+    long getRow(int word) {
+        return rows[word];
+    }
+
+    private void setRow(int word, long value) {
+        rows[word] = value;
+        rowsChanged = true;
+    }
+
+    // Collision is reported for the whole sprite, rows drawn after this call add up to it
+    public void beginSprite() {
+        setCollision(false);
+    }
+
+    // The row is placed at the left end of a word and rotated to x, which wraps it around the screen edge
+    public void display(byte x, byte y, byte data, int offset) {
+        displayRow(x, y, (data & 0xffL) << (Long.SIZE - BYTE_SIZE), offset, false);
+    }
+
+    // Row of a 16 pixels wide SUPER-CHIP sprite
+    public void displayWide(byte x, byte y, short data, int offset) {
+        displayRow(x, y, (data & 0xffffL) << (Long.SIZE - 2 * BYTE_SIZE), offset, false);
+    }
+
+    // Rows and pixels past the right and bottom edges are not drawn, the position the sprite starts at still wraps
+    public void displayClipped(byte x, byte y, byte data, int offset) {
+        displayRow(x, y, (data & 0xffL) << (Long.SIZE - BYTE_SIZE), offset, true);
+    }
+
+    public void displayWideClipped(byte x, byte y, short data, int offset) {
+        displayRow(x, y, (data & 0xffffL) << (Long.SIZE - 2 * BYTE_SIZE), offset, true);
+    }
+
+    private void displayRow(byte x, byte y, long sprite, int offset, boolean clip) {
+        if (isHires()) {
+            displayHiresRow(x, y, sprite, offset, clip);
+            return;
+        }
+
+        int row;
+        int shift = (x & 0xff) % WIDTH;
+        if (clip) {
+            row = (y & 0xff) % HEIGHT + offset;
+            if (row >= HEIGHT) {
+                return;
+            }
+            sprite >>>= shift;
+        } else {
+            row = ((y & 0xff) + offset) % HEIGHT;
+            sprite = Long.rotateRight(sprite, shift);
+        }
+        long current = getRow(row);
+        if ((current & sprite) != 0) {
+            setCollision(true);
+        }
+        setRow(row, current ^ sprite);
+        repaintFlag = true;
+    }
+
+    // Shifts the sprite across the two words of the row, as one 128 bits word
+    private void displayHiresRow(byte x, byte y, long sprite, int offset, boolean clip) {
+        int row = clip ? (y & 0xff) % HIRES_HEIGHT + offset : ((y & 0xff) + offset) % HIRES_HEIGHT;
+        if (row >= HIRES_HEIGHT) {
+            state[MachineState.COLLISION]++;
+            return;
+        }
+        int index = row * 2;
+        int shift = (x & 0xff) % HIRES_WIDTH;
+        long left = sprite;
+        long right = 0;
+        if (shift >= Long.SIZE) {
+            right = left;
+            left = 0;
+            shift -= Long.SIZE;
+        }
+        if (shift != 0) {
+            long rotatedLeft = clip ? left >>> shift : left >>> shift | right << (Long.SIZE - shift);
+            right = right >>> shift | left << (Long.SIZE - shift);
+            left = rotatedLeft;
+        }
+
+        long currentLeft = getRow(index);
+        long currentRight = getRow(index + 1);
+        if ((currentLeft & left | currentRight & right) != 0) {
+            state[MachineState.COLLISION]++;
+        }
+        setRow(index, currentLeft ^ left);
+        setRow(index + 1, currentRight ^ right);
+        repaintFlag = true;
+    }
+
+    // Moves the picture down by n rows of the current resolution, whole words at a time
+    public void scrollDown(int n) {
+        int height = getHeight();
+        int rowWords = isHires() ? 2 : 1;
+        n = Math.min(n, height);
+        System.arraycopy(rows, 0, rows, n * rowWords, (height - n) * rowWords);
+        Arrays.fill(rows, 0, n * rowWords, 0);
+        rowsChanged = true;
+        repaintFlag = true;
+    }
+
+    // Moves the picture right by 4 pixels of the current resolution, the pixels pushed off the edge are lost
+    public void scrollRight() {
+        if (isHires()) {
+            for (int i = 0; i < WORDS; i += 2) {
+                long left = getRow(i);
+                setRow(i + 1, getRow(i + 1) >>> SCROLL_PIXELS | left << (Long.SIZE - SCROLL_PIXELS));
+                setRow(i, left >>> SCROLL_PIXELS);
+            }
+        } else {
+            for (int i = 0; i < HEIGHT; i++) {
+                setRow(i, getRow(i) >>> SCROLL_PIXELS);
+            }
+        }
+        repaintFlag = true;
+    }
+
+    public void scrollLeft() {
+        if (isHires()) {
+            for (int i = 0; i < WORDS; i += 2) {
+                long right = getRow(i + 1);
+                setRow(i, getRow(i) << SCROLL_PIXELS | right >>> (Long.SIZE - SCROLL_PIXELS));
+                setRow(i + 1, right << SCROLL_PIXELS);
+            }
+        } else {
+            for (int i = 0; i < HEIGHT; i++) {
+                setRow(i, getRow(i) << SCROLL_PIXELS);
+            }
+        }
+        repaintFlag = true;
+    }
+
+    // The rows of the two resolutions are laid out differently, switching starts from a blank screen
+    public void switchResolution(boolean hires) {
+        setHires(hires);
+        clearDisplay();
+        repaintFlag = true;
+    }
+
+    public boolean isHires() {
+        return state[MachineState.HIRES] != 0;
+    }
+
+    // Restores the resolution along with rows saved in it
+    public void setHires(boolean hires) {
+        state[MachineState.HIRES] = hires ? (byte) 1 : (byte) 0;
+    }
+
+    public int getWidth() {
+        return isHires() ? HIRES_WIDTH : WIDTH;
+    }
+
+    public int getHeight() {
+        return isHires() ? HIRES_HEIGHT : HEIGHT;
+    }
+
+    public void clearDisplay() {
+        Arrays.fill(rows, 0);
+        rowsChanged = true;
+    }
+
+    public void clear() {
+        clearDisplay();
+        setHires(false);
+        setCollision(false);
+        repaintFlag = false;
+    }
+
+    // Called by the emulation thread once a frame is complete
+    public void publish() {
+        copyRows(frame);
+        exchange.publish(frame, isHires());
+        repaintFlag = false;
+    }
+
+    // Called by the thread displaying frames, the returned rows are not changed until the next call
+    public long[] acquireFrame() {
+        return exchange.acquire();
+    }
+
+    // Resolution of the frame returned by the last acquireFrame
+    public boolean isAcquiredFrameHires() {
+        return exchange.isAcquiredHires();
+    }
+
+    // A copy of the rows
+    public long[] getRows() {
+        return rows.clone();
+    }
+
+    public void setRows(long[] values) {
+        System.arraycopy(values, 0, rows, 0, WORDS);
+        rowsChanged = true;
+    }
+
+    private void copyRows(long[] target) {
+        System.arraycopy(rows, 0, target, 0, WORDS);
+    }
+
+    // Pixels in the byte per 8 pixels layout of saved games, which only know the low resolution
+    public byte[][] getPixels() {
+        byte[][] pixels = new byte[HEIGHT][WIDTH / BYTE_SIZE];
+        for (int i = 0; i < HEIGHT; i++) {
+            for (int j = 0; j < WIDTH / BYTE_SIZE; j++) {
+                pixels[i][j] = (byte) (getRow(i) >>> (WIDTH - BYTE_SIZE * (j + 1)));
+            }
+        }
+
+        return pixels;
+    }
+
+    public void setPixels(byte[][] values) {
+        for (int i = 0; i < values.length; i ++) {
+            byte[] row = values[i];
+            long value = 0;
+            for (int j = 0; j < row.length; j++) {
+                value = value << BYTE_SIZE | (row[j] & 0xff);
+            }
+            setRow(i, value);
+        }
+    }
+
+    // At x and y of the current resolution
+    public boolean isSet(int x, int y) {
+        if (isHires()) {
+            long word = getRow(y * 2 + x / Long.SIZE);
+            return (word >>> (Long.SIZE - 1 - x % Long.SIZE) & 1) != 0;
+        }
+
+        return (getRow(y) >>> (WIDTH - 1 - x) & 1) != 0;
+    }
+
+    public boolean getCollision() {
+        return state[MachineState.COLLISION] != 0;
+    }
+
+    public void setCollision(boolean collision) {
+        state[MachineState.COLLISION] = collision ? (byte) 1 : (byte) 0;
+    }
+
+    public void setRepaintFlag(boolean repaintFlag) {
+        this.repaintFlag = repaintFlag;
+    }
+
+    public boolean shouldRepaint() {
+        return repaintFlag;
+    }
+
+    public boolean erasedPrevious() {
+        return getCollision();
+    }
+
+    // Value of VF after a sprite, see the collision above
+    public byte collisionResult() {
+        return isHires() ? state[MachineState.COLLISION] : (byte) (getCollision() ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        int width = getWidth();
+        int height = getHeight();
+        StringBuilder builder = new StringBuilder((width + 1) * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                builder.append(isSet(x, y) ? '#' : '.');
+            }
+            builder.append('\n');
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.chuyachia.chip8emulator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Triple buffer handing complete frames from the emulation thread to the thread painting them. The producer fills
+// its back buffer and swaps it with the middle one, the consumer swaps the middle one with its front buffer when a
+// fresh frame is there. Each side only ever touches its own buffer, the middle one changes hands in one atomic swap.
+class FrameExchange {
+
+    private final static int INDEX_MASK = 0b011;
+    private final static int FRESH = 0b100;
+
+    private final long[][] buffers;
+    // Resolution of the frame in each buffer, handed over along with it
+    private final boolean[] hires = new boolean[3];
+    // Index of the middle buffer, with FRESH set while it holds a frame the consumer has not taken yet
+    private final AtomicInteger middle = new AtomicInteger(1);
+    // Only accessed by the producer
+    private int back = 0;
+    // Only accessed by the consumer
+    private int front = 2;
+
+    FrameExchange(int rows) {
+        buffers = new long[3][rows];
+    }
+
+    // Producer side, a frame published before the previous one got consumed replaces it
+    void publish(long[] frame) {
+        publish(frame, false);
+    }
+
+    void publish(long[] frame, boolean frameHires) {
+        System.arraycopy(frame, 0, buffers[back], 0, frame.length);
+        hires[back] = frameHires;
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    // Consumer side, returns the latest published frame. The array stays unchanged until the next call.
+    long[] acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+
+        return buffers[front];
+    }
+
+    // Consumer side, whether the frame returned by the last acquire is in high resolution
+    boolean isAcquiredHires() {
+        return hires[front];
+    }
+}
@@ -0,0 +1,160 @@
+package com.chuyachia.chip8emulator;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+// Timing of the interactive loop: frame time from one frame start to the next, time spent emulating and painting,
+// how late the scheduler woke up, instructions per second and how far the 60 Hz timers drift from the wall clock.
+// Frames are reported by the emulation thread only, paints by the event dispatch thread, anything may read.
+class FrameMetrics implements FrameMetricsMXBean {
+
+    final static String OBJECT_NAME = "com.chuyachia.chip8emulator:type=FrameMetrics";
+    private final static long NANOS_PER_MICRO = 1_000;
+    private final static long NANOS_PER_SECOND = 1_000_000_000;
+
+    private final Histogram frameTime = new Histogram();
+    private final Histogram emulationTime = new Histogram();
+    private final Histogram paintTime = new Histogram();
+    private final Histogram sleepOvershoot = new Histogram();
+    private final Histogram timerDrift = new Histogram();
+    private final Histogram instructionsPerSecond = new Histogram();
+
+    private volatile long frames;
+    private volatile long lastInstructionsPerSecond;
+    private volatile long lastTimerDrift;
+
+    // Emulation thread only
+    private long sessionStart;
+    private long sessionFrames;
+    private long previousFrameStart;
+    private long windowStart;
+    private long windowInstructions;
+
+    void sessionStarted(long now, long instructionCount) {
+        sessionStart = now;
+        sessionFrames = 0;
+        previousFrameStart = now;
+        windowStart = now;
+        windowInstructions = instructionCount;
+    }
+
+    void frameStarted(long now, long instructionCount) {
+        if (sessionFrames > 0) {
+            frameTime.record((now - previousFrameStart) / NANOS_PER_MICRO);
+        }
+        previousFrameStart = now;
+
+        // Timers tick once per frame, frame n should start n sixtieths of a second into the session
+        long drift = (now - sessionStart - sessionFrames * FrameScheduler.FRAME_NANOS) / NANOS_PER_MICRO;
+        lastTimerDrift = drift;
+        timerDrift.record(Math.abs(drift));
+        sessionFrames++;
+        frames++;
+
+        long window = now - windowStart;
+        if (window >= NANOS_PER_SECOND) {
+            long rate = (instructionCount - windowInstructions) * NANOS_PER_SECOND / window;
+            lastInstructionsPerSecond = rate;
+            instructionsPerSecond.record(rate);
+            windowStart = now;
+            windowInstructions = instructionCount;
+        }
+    }
+
+    void frameEmulated(long nanos) {
+        emulationTime.record(nanos / NANOS_PER_MICRO);
+    }
+
+    void frameAwaited(long overshootNanos) {
+        sleepOvershoot.record(overshootNanos / NANOS_PER_MICRO);
+    }
+
+    void framePainted(long nanos) {
+        paintTime.record(nanos / NANOS_PER_MICRO);
+    }
+
+    // Registers with the platform MBean server, false when that failed
+    boolean register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+            return true;
+        } catch (JMException e) {
+            System.out.println(String.format("Could not register the frame metrics: %s", e.getMessage()));
+            return false;
+        }
+    }
+
+    void writeText(Appendable out) throws IOException {
+        out.append(String.format("frames %d%n", frames));
+        out.append(String.format("instructions_per_second %d%n", lastInstructionsPerSecond));
+        out.append(String.format("timer_drift_us %d%n", lastTimerDrift));
+        writeHistogram(out, "frame_time_us", frameTime);
+        writeHistogram(out, "emulation_time_us", emulationTime);
+        writeHistogram(out, "paint_time_us", paintTime);
+        writeHistogram(out, "sleep_overshoot_us", sleepOvershoot);
+        writeHistogram(out, "timer_drift_abs_us", timerDrift);
+        writeHistogram(out, "instructions_per_second_samples", instructionsPerSecond);
+    }
+
+    private static void writeHistogram(Appendable out, String name, Histogram histogram) throws IOException {
+        out.append(String.format("%s %s%n", name, histogram.snapshot()));
+    }
+
+    @Override
+    public long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public long getInstructionsPerSecond() {
+        return lastInstructionsPerSecond;
+    }
+
+    @Override
+    public long getTimerDrift() {
+        return lastTimerDrift;
+    }
+
+    @Override
+    public HistogramSnapshot getFrameTime() {
+        return frameTime.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getEmulationTime() {
+        return emulationTime.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getPaintTime() {
+        return paintTime.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getSleepOvershoot() {
+        return sleepOvershoot.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getTimerDriftHistogram() {
+        return timerDrift.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getInstructionsPerSecondHistogram() {
+        return instructionsPerSecond.snapshot();
+    }
+
+    // Clears the histograms, the frame count and the current session carry on
+    @Override
+    public void reset() {
+        frameTime.clear();
+        emulationTime.clear();
+        paintTime.clear();
+        sleepOvershoot.clear();
+        timerDrift.clear();
+        instructionsPerSecond.clear();
+    }
+}
@@ -0,0 +1,27 @@
+package com.chuyachia.chip8emulator;
+
+// Durations are in microseconds
+public interface FrameMetricsMXBean {
+
+    long getFrames();
+
+    // Over the last whole second of emulation
+    long getInstructionsPerSecond();
+
+    // How far the 60 Hz timers are behind the wall clock since the session started, negative when ahead
+    long getTimerDrift();
+
+    HistogramSnapshot getFrameTime();
+
+    HistogramSnapshot getEmulationTime();
+
+    HistogramSnapshot getPaintTime();
+
+    HistogramSnapshot getSleepOvershoot();
+
+    HistogramSnapshot getTimerDriftHistogram();
+
+    HistogramSnapshot getInstructionsPerSecondHistogram();
+
+    void reset();
+}
@@ -0,0 +1,97 @@
+package com.chuyachia.chip8emulator;
+
+import java.util.concurrent.locks.LockSupport;
+
+public class FrameScheduler {
+
+    public final static int REFRESH_RATE = 60;
+    public final static long FRAME_NANOS = 1_000_000_000L / REFRESH_RATE;
+    // Falling further behind than this resets the schedule instead of running frames back to back to catch up
+    private final static int MAX_LAG_FRAMES = 5;
+
+    private volatile int clockRate;
+    private volatile boolean turbo;
+    private int instructionRemainder;
+    private long nextFrame;
+    private long lastPresented;
+    // How late the last wait returned after the frame it waited for was due
+    private long lastOvershoot;
+
+    public FrameScheduler(int clockRate) {
+        this.clockRate = clockRate;
+    }
+
+    public void reset() {
+        instructionRemainder = 0;
+        nextFrame = System.nanoTime() + FRAME_NANOS;
+        lastPresented = 0;
+    }
+
+    // Spreads the clock rate over the frames of a second so that no instruction is lost to integer division
+    public int instructionsForFrame() {
+        int instructions = clockRate + instructionRemainder;
+        instructionRemainder = instructions % REFRESH_RATE;
+        return instructions / REFRESH_RATE;
+    }
+
+    // In turbo mode frames run back to back, the frontend still only needs one frame per display refresh
+    public boolean presentationDue() {
+        if (!turbo) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        if (now - lastPresented >= FRAME_NANOS) {
+            lastPresented = now;
+            return true;
+        }
+
+        return false;
+    }
+
+    // Returns false when the emulation thread got interrupted while waiting
+    public boolean awaitNextFrame() {
+        if (turbo) {
+            nextFrame = System.nanoTime() + FRAME_NANOS;
+            lastOvershoot = 0;
+            return !Thread.currentThread().isInterrupted();
+        }
+
+        long now = System.nanoTime();
+        if (now - nextFrame > MAX_LAG_FRAMES * FRAME_NANOS) {
+            nextFrame = now;
+        }
+
+        long remaining;
+        while ((remaining = nextFrame - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+
+        lastOvershoot = System.nanoTime() - nextFrame;
+        nextFrame += FRAME_NANOS;
+        return true;
+    }
+
+    public long getLastOvershoot() {
+        return lastOvershoot;
+    }
+
+    public int getClockRate() {
+        return clockRate;
+    }
+
+    public void setClockRate(int clockRate) {
+        this.clockRate = clockRate;
+    }
+
+    public boolean isTurbo() {
+        return turbo;
+    }
+
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+    }
+}
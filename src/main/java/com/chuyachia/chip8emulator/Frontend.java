@@ -0,0 +1,36 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.File;
+
+public interface Frontend {
+
+    // Used when the machine runs without any display attached
+    Frontend NONE = new Frontend() {
+        @Override
+        public void frameReady() {
+        }
+
+        @Override
+        public File chooseSaveFile(File suggested) {
+            return null;
+        }
+
+        @Override
+        public void saveFailed() {
+        }
+
+        @Override
+        public void emulationEnded() {
+        }
+    };
+
+    void frameReady();
+
+    // Called from the thread writing the save, blocks until the user chose. Returns null when the save is cancelled.
+    File chooseSaveFile(File suggested);
+
+    // Called from the thread writing the save
+    void saveFailed();
+
+    void emulationEnded();
+}
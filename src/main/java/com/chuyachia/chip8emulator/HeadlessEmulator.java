@@ -0,0 +1,89 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class HeadlessEmulator {
+
+    private final static long DEFAULT_CYCLES = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: HeadlessEmulator <rom> [cycles]");
+            return;
+        }
+
+        byte[] rom = Files.readAllBytes(Paths.get(args[0]));
+        // -Dchip8.replay=<file> replays a session recorded by the emulator instead of running on its own
+        String replay = System.getProperty("chip8.replay");
+        if (replay != null) {
+            replay(rom, Paths.get(replay));
+            return;
+        }
+
+        long cycles = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_CYCLES;
+
+        Chip8 chip8 = new Chip8();
+        chip8.setQuirkProfile(selectedQuirkProfile());
+        chip8.loadGame(rom);
+        // -Dchip8.engine=jit compiles hot code to bytecode
+        selectEngine(chip8.getProcessingUnit());
+        // -Dchip8.profile=<file> writes an execution profile of the run
+        String profile = System.getProperty("chip8.profile");
+        if (profile != null) {
+            chip8.setProfilePath(Paths.get(profile));
+        }
+        long start = System.nanoTime();
+        long executed = chip8.runCycles(cycles);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.print(chip8.getFrameBuffer());
+        System.out.println(String.format("Executed %d instructions in %d ms, %d of them skipped in idle loops", executed,
+                elapsed / 1_000_000, chip8.getIdleInstructionCount()));
+        if (profile != null) {
+            chip8.writeProfile();
+        }
+    }
+
+    static void selectEngine(ProcessingUnit processingUnit) {
+        String engine = CpuEngines.selectedName();
+        if (!processingUnit.setEngine(engine)) {
+            System.out.println(String.format("Unknown engine %s, available engines are %s", engine, CpuEngines.names()));
+        }
+    }
+
+    // -Dchip8.quirks=<profile> overrides the profile picked from the ROM
+    static QuirkProfile selectedQuirkProfile() {
+        String name = System.getProperty("chip8.quirks");
+        if (name == null) {
+            return null;
+        }
+
+        try {
+            return QuirkProfile.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            System.out.println(String.format("Unknown quirk profile %s, available profiles are %s", name,
+                    Arrays.toString(QuirkProfile.values())));
+            return null;
+        }
+    }
+
+    private static void replay(byte[] rom, Path recording) throws IOException {
+        SessionReplay sessionReplay = new SessionReplay(SessionLog.read(recording), rom);
+        selectEngine(sessionReplay.getProcessingUnit());
+        long start = System.nanoTime();
+        int status = sessionReplay.run();
+        long elapsed = System.nanoTime() - start;
+
+        System.out.print(sessionReplay.getFrameBuffer());
+        System.out.println(sessionReplay.describeStatus(status));
+        System.out.println(String.format("Executed %d instructions in %d ms", sessionReplay.getInstructionCount(),
+                elapsed / 1_000_000));
+        if (status != SessionReplay.REPLAY_OK) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.chuyachia.chip8emulator;
+
+import java.beans.ConstructorProperties;
+
+// Summary of a histogram at one point, shows up as composite data in JMX clients
+public class HistogramSnapshot {
+
+    private final long count;
+    private final double mean;
+    private final long median;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    @ConstructorProperties({"count", "mean", "median", "p99", "p999", "max"})
+    public HistogramSnapshot(long count, double mean, long median, long p99, long p999, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.median = median;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getMedian() {
+        return median;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count %d mean %.1f median %d p99 %d p99.9 %d max %d", count, mean, median, p99, p999, max);
+    }
+}
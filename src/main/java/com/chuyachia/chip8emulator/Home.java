@@ -18,13 +18,15 @@ public class Home extends JPanel {
     private final static String SAVE_FILE_NOT_VALID = "<HTML>The chosen file is not a valid save file.<br/> Please try another one</HTML>";
 
     private final Chip8 chip8;
+    private final Screen screen;
     private JLabel title;
     private JLabel chooseRomlabel;
     private JLabel chooseSaveFilelabel;
     private JFileChooser fc;
 
-    public Home(Chip8 chip8) {
+    public Home(Chip8 chip8, Screen screen) {
         this.chip8 = chip8;
+        this.screen = screen;
         this.setLayout(new BorderLayout());
         this.setBorder(BorderFactory.createEmptyBorder(PADDING_SIZE, PADDING_SIZE, PADDING_SIZE, PADDING_SIZE));
         fc = new JFileChooser();
@@ -35,7 +37,7 @@ public class Home extends JPanel {
 
     @Override
     public Dimension getPreferredSize() {
-        return new Dimension(Screen.WIDTH * chip8.getScreenScaleFactor(), Screen.HEIGHT * chip8.getScreenScaleFactor());
+        return new Dimension(FrameBuffer.WIDTH * screen.getScaleFactor(), FrameBuffer.HEIGHT * screen.getScaleFactor());
     }
 
     private void addTitle() {
@@ -53,10 +55,12 @@ public class Home extends JPanel {
         JPanel saveFileChooser = saveFileChooserPanel();
         JPanel screenSize = screenSizePanel();
         JPanel emulationSpeed = emulationSpeedPanel();
+        JPanel engine = enginePanel();
         panel.add(romChooser);
         panel.add(saveFileChooser);
         panel.add(screenSize);
         panel.add(emulationSpeed);
+        panel.add(engine);
         this.add(panel, BorderLayout.CENTER);
     }
 
@@ -145,7 +149,7 @@ public class Home extends JPanel {
 
     private void addDetail() {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        JLabel detail = new JLabel("<HTML>Press ESC during emulation to stop<br/>Press SPACE during emulation to save</HTML>");
+        JLabel detail = new JLabel("<HTML>Press ESC during emulation to stop<br/>Press SPACE during emulation to save<br/>Hold BACKSPACE during emulation to rewind</HTML>");
         detail.setFont(new Font(FONT, Font.ITALIC, 12));
         panel.add(detail);
         this.add(panel, BorderLayout.SOUTH);
@@ -159,7 +163,7 @@ public class Home extends JPanel {
         JSpinner spinner = new JSpinner(new SpinnerNumberModel(10, 10, 50, 10));
         spinner.addChangeListener(changeEvent -> {
             int screenScaleFactor = (int) spinner.getValue();
-            this.chip8.setScreenScaleFactor(screenScaleFactor);
+            this.screen.setScaleFactor(screenScaleFactor);
             JFrame topFrame = (JFrame) SwingUtilities.getWindowAncestor(this);
             topFrame.pack();
         });
@@ -172,17 +176,37 @@ public class Home extends JPanel {
         JLabel sliderLabel = new JLabel("Choose emulation clock speed (Hz)");
         sliderLabel.setFont(new Font(FONT, Font.PLAIN, 18));
         panel.add(sliderLabel);
-        JSlider slider = new JSlider(400, 900, 500);
+        JSlider slider = new JSlider(400, 3000, 500);
         slider.setPaintTicks(true);
         slider.setPaintLabels(true);
         slider.setPaintTrack(true);
-        slider.setMajorTickSpacing(100);
-        slider.setMinorTickSpacing(50);
+        slider.setMajorTickSpacing(400);
+        slider.setMinorTickSpacing(100);
         slider.addChangeListener(changeEvent -> {
             int clockRate = slider.getValue();
             this.chip8.setClockRate(clockRate);
         });
         panel.add(slider);
+        JCheckBox turbo = new JCheckBox("Turbo");
+        turbo.setFont(new Font(FONT, Font.PLAIN, 18));
+        turbo.addItemListener(itemEvent -> {
+            slider.setEnabled(!turbo.isSelected());
+            this.chip8.setTurbo(turbo.isSelected());
+        });
+        panel.add(turbo);
+        return panel;
+    }
+
+    private JPanel enginePanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JLabel comboBoxLabel = new JLabel("Choose emulation engine");
+        comboBoxLabel.setFont(new Font(FONT, Font.PLAIN, 18));
+        panel.add(comboBoxLabel);
+        JComboBox<String> comboBox = new JComboBox<>(CpuEngines.names().toArray(new String[0]));
+        comboBox.setFont(new Font(FONT, Font.PLAIN, 18));
+        comboBox.setSelectedItem(this.chip8.getEngine());
+        comboBox.addActionListener(actionEvent -> this.chip8.setEngine((String) comboBox.getSelectedItem()));
+        panel.add(comboBox);
         return panel;
     }
 }
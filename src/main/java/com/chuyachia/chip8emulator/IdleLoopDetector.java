@@ -0,0 +1,63 @@
+package com.chuyachia.chip8emulator;
+
+// Spots the CPU spinning in place, as in LD Vx, DT / SE Vx, 0 / JP back, JP to itself or key polling loops cycling
+// a counter. When a control transfer back to an address finds every register, timer and stack level as they were at
+// an earlier one to the same address, with no memory write, draw, clear or random number in between, the
+// instructions in between form a loop that keeps running the same way until the timers tick or the keys change at
+// the next frame. Every whole turn of it up to the end of the frame can then be counted without being run.
+class IdleLoopDetector {
+
+    // Instructions before the state compared against gets taken again, longer loops are not found
+    final static int MAX_PERIOD = 256;
+    private final static int NO_TARGET = -1;
+
+    // V0-VF, I, DT, ST, PC and the stack, contiguous at the start of the machine state
+    private final static int REGISTERS_SIZE = MachineState.KEY_WAIT;
+
+    private final ProcessingUnit processingUnit;
+    private final Memory memory;
+    private final byte[] state;
+
+    // State at an earlier control transfer back to target
+    private int target = NO_TARGET;
+    private long instructionCount;
+    private int memoryVersion;
+    private int sideEffects;
+    private final byte[] registers = new byte[REGISTERS_SIZE];
+
+    IdleLoopDetector(ProcessingUnit processingUnit, Memory memory) {
+        this.processingUnit = processingUnit;
+        this.memory = memory;
+        this.state = memory.getState();
+    }
+
+    // Timers and keys may change in between two runs, a loop has to be seen twice within the same run
+    void reset() {
+        target = NO_TARGET;
+    }
+
+    // Called after a control transfer to the given address, at or before the one it came from. Returns the number
+    // of instructions a turn of the idle loop takes, 0 while the CPU is not known to be idle.
+    long backEdge(int address) {
+        memory.storePC();
+        long count = processingUnit.getInstructionCount();
+        long period = count - instructionCount;
+        if (address == target && period <= MAX_PERIOD
+                && memory.getWriteVersion() == memoryVersion
+                && processingUnit.getSideEffects() == sideEffects) {
+            // Kept when the registers differ, a counter in the loop may come back to the same value a few turns later
+            return sameRegisters() ? period : 0;
+        }
+
+        target = address;
+        instructionCount = count;
+        memoryVersion = memory.getWriteVersion();
+        sideEffects = processingUnit.getSideEffects();
+        System.arraycopy(state, 0, registers, 0, REGISTERS_SIZE);
+        return 0;
+    }
+
+    private boolean sameRegisters() {
+        return MachineState.sameRange(registers, 0, state, 0, REGISTERS_SIZE);
+    }
+}
@@ -0,0 +1,83 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+// Keys to press and release at given frames, one per line as "<frame> <key in hex> down|up".
+// Empty lines and lines starting with # are ignored, frames have to be in increasing order.
+class InputScript {
+
+    static final InputScript NONE = new InputScript(new long[0], new int[0], new boolean[0]);
+
+    private final long[] frames;
+    private final int[] keys;
+    private final boolean[] pressed;
+
+    private InputScript(long[] frames, int[] keys, boolean[] pressed) {
+        this.frames = frames;
+        this.keys = keys;
+        this.pressed = pressed;
+    }
+
+    static InputScript read(Path path) throws IOException {
+        return parse(Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    static InputScript parse(List<String> lines) throws IOException {
+        long[] frames = new long[lines.size()];
+        int[] keys = new int[lines.size()];
+        boolean[] pressed = new boolean[lines.size()];
+        int count = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split("\\s+");
+            try {
+                if (fields.length != 3) {
+                    throw new IllegalArgumentException();
+                }
+                frames[count] = Long.parseLong(fields[0]);
+                keys[count] = Integer.parseInt(fields[1], 16);
+                if (keys[count] < 0 || keys[count] >= Keyboard.KEY_NUMBER || count > 0 && frames[count] < frames[count - 1]) {
+                    throw new IllegalArgumentException();
+                }
+                if (fields[2].equals("down")) {
+                    pressed[count] = true;
+                } else if (!fields[2].equals("up")) {
+                    throw new IllegalArgumentException();
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException(String.format("Line %d of input script is not \"<frame> <key> down|up\" in order: %s",
+                        i + 1, line));
+            }
+            count++;
+        }
+
+        return new InputScript(Arrays.copyOf(frames, count), Arrays.copyOf(keys, count), Arrays.copyOf(pressed, count));
+    }
+
+    // Applies the entries of the given frame starting at the given index, returns the index of the next entry
+    int apply(int next, long frame, Keyboard keyboard) {
+        while (next < frames.length && frames[next] <= frame) {
+            if (pressed[next]) {
+                keyboard.press(keys[next]);
+            } else {
+                keyboard.release(keys[next]);
+            }
+            next++;
+        }
+
+        return next;
+    }
+
+    boolean hasEntriesFrom(int next) {
+        return next < frames.length;
+    }
+}
@@ -4,6 +4,13 @@ public enum Instruction {
 
     CLS((short) 0x00E0, (short) 0xFFFF, new short[]{}),
     RET((short) 0x00EE, (short) 0xFFFF, new short[]{}),
+    // SUPER-CHIP
+    SCD_N((short) 0x00C0, (short) 0xFFF0, new short[]{0x000F}),
+    SCR((short) 0x00FB, (short) 0xFFFF, new short[]{}),
+    SCL((short) 0x00FC, (short) 0xFFFF, new short[]{}),
+    EXIT((short) 0x00FD, (short) 0xFFFF, new short[]{}),
+    LOW((short) 0x00FE, (short) 0xFFFF, new short[]{}),
+    HIGH((short) 0x00FF, (short) 0xFFFF, new short[]{}),
     JP_ADDR((short) 0x1000, (short) 0xF000, new short[]{0x0FFF}),
     CALL_ADDR((short) 0x2000, (short) 0xF000, new short[]{0x0FFF}),
     SE_VX((short) 0x3000, (short) 0xF000, new short[]{0x0F00, 0x00FF}),
@@ -35,7 +42,20 @@ public enum Instruction {
     LD_F_VX((short) 0xF029, (short) 0xF0FF, new short[]{0x0F00}),
     LD_B_VX((short) 0xF033, (short) 0xF0FF, new short[]{0x0F00}),
     LD_I_VX((short) 0xF055, (short) 0xF0FF, new short[]{0x0F00}),
-    LD_VX_I((short) 0xF065, (short) 0xF0FF, new short[]{0x0F00});
+    LD_VX_I((short) 0xF065, (short) 0xF0FF, new short[]{0x0F00}),
+    // SUPER-CHIP
+    LD_HF_VX((short) 0xF030, (short) 0xF0FF, new short[]{0x0F00}),
+    LD_R_VX((short) 0xF075, (short) 0xF0FF, new short[]{0x0F00}),
+    LD_VX_R((short) 0xF085, (short) 0xF0FF, new short[]{0x0F00}),
+    // Quirk variants of the instructions above, never matched by scan. The decode table of a profile holds them in
+    // place of the instruction they share an opcode with, see QuirkProfile.
+    SHR_VX_FROM_VY((short) 0x8006, (short) 0xF00F, new short[]{0x0F00, 0x00F0}),
+    SHL_VX_FROM_VY((short) 0x800E, (short) 0xF00F, new short[]{0x0F00, 0x00F0}),
+    DRW_VX_VY_CLIP((short) 0xD000, (short) 0xF000, new short[]{0x0F00, 0x00F0, 0x000F}),
+    LD_I_VX_TO_LAST((short) 0xF055, (short) 0xF0FF, new short[]{0x0F00}),
+    LD_I_VX_PAST_LAST((short) 0xF055, (short) 0xF0FF, new short[]{0x0F00}),
+    LD_VX_I_TO_LAST((short) 0xF065, (short) 0xF0FF, new short[]{0x0F00}),
+    LD_VX_I_PAST_LAST((short) 0xF065, (short) 0xF0FF, new short[]{0x0F00});
 
 
     Instruction(short pattern, short patternMask, short[] valueMasks) {
@@ -48,7 +68,15 @@ public enum Instruction {
     private short patternMask;
     private short[] valueMasks;
 
+    final static int OPCODES = 1 << 16;
+    // Every possible 16 bits opcode mapped to its instruction, null for illegal opcodes
+    private final static Instruction[] DECODE_TABLE = buildDecodeTable();
+
     public static Instruction getMatched(short instruction) {
+        return DECODE_TABLE[instruction & 0xffff];
+    }
+
+    static Instruction scan(short instruction) {
         Instruction instructionPattern = null;
         for (Instruction existingInstruction : Instruction.values()) {
             if (existingInstruction.match(instruction)) {
@@ -60,6 +88,15 @@ public enum Instruction {
         return instructionPattern;
     }
 
+    private static Instruction[] buildDecodeTable() {
+        Instruction[] table = new Instruction[OPCODES];
+        for (int opcode = 0; opcode < table.length; opcode++) {
+            table[opcode] = scan((short) opcode);
+        }
+
+        return table;
+    }
+
     public static short getNnnn(short[] arguments) {
         return arguments[0];
     }
@@ -80,18 +117,30 @@ public enum Instruction {
         return (byte) arguments[2];
     }
 
+    public static short getNnnn(short instruction) {
+        return (short) (instruction & 0x0fff);
+    }
+
+    public static byte getKk(short instruction) {
+        return (byte) instruction;
+    }
+
+    public static byte getX(short instruction) {
+        return (byte) ((instruction >>> 8) & 0x0f);
+    }
+
+    public static byte getY(short instruction) {
+        return (byte) ((instruction >>> 4) & 0x0f);
+    }
+
+    public static byte getN(short instruction) {
+        return (byte) (instruction & 0x0f);
+    }
+
     public short[] getArguments(short instruction) {
         short[] arguments = new short[valueMasks.length];
         for (short i = 0; i < valueMasks.length; i++) {
-            short argumentValue = (short) (valueMasks[i] & instruction);
-            short valueMask = valueMasks[i];
-            // Get rid of trailing zeros
-            while (valueMask % 16 == 0 && valueMask > 0) {
-                argumentValue = (short) (argumentValue >>> 4);
-                valueMask = (short) (valueMask >>> 4);
-            }
-
-            arguments[i] = argumentValue;
+            arguments[i] = (short) ((valueMasks[i] & instruction) >>> Integer.numberOfTrailingZeros(valueMasks[i]));
         }
 
         return arguments;
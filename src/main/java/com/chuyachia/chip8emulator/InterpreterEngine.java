@@ -0,0 +1,65 @@
+package com.chuyachia.chip8emulator;
+
+import java.nio.ByteBuffer;
+
+// Fetches, decodes and executes one instruction at a time, the reference the other engines are checked against
+public class InterpreterEngine implements CpuEngine {
+
+    private final ProcessingUnit processingUnit;
+    private final Memory memory;
+
+    InterpreterEngine(ProcessingUnit processingUnit) {
+        this.processingUnit = processingUnit;
+        this.memory = processingUnit.getMemory();
+    }
+
+    @Override
+    public String getName() {
+        return CpuEngines.INTERPRETER;
+    }
+
+    @Override
+    public int run(int instructions) {
+        processingUnit.resetIdleLoop();
+        for (int i = 0; i < instructions; i++) {
+            if (processingUnit.isWaitingForKey() && !processingUnit.resumeFromKeyWait()) {
+                break;
+            }
+            short address = memory.getPC();
+            int status = processingUnit.runInstructionCycle();
+            if (status != ProcessingUnit.CYCLE_OK) {
+                return status;
+            }
+            processingUnit.retire(1);
+            // Addresses stay below 0x1000, comparing them signed is fine
+            if (memory.getPC() <= address && processingUnit.isIdleLoopSkipping()) {
+                i += processingUnit.skipIdleTurns(instructions - i - 1);
+            }
+        }
+
+        return ProcessingUnit.CYCLE_OK;
+    }
+
+    @Override
+    public void saveState(ByteBuffer buffer) {
+        processingUnit.saveTo(buffer);
+    }
+
+    @Override
+    public void restoreState(ByteBuffer buffer) {
+        processingUnit.restoreFrom(buffer);
+    }
+
+    public static class Provider implements CpuEngineProvider {
+
+        @Override
+        public String getName() {
+            return CpuEngines.INTERPRETER;
+        }
+
+        @Override
+        public CpuEngine create(ProcessingUnit processingUnit) {
+            return new InterpreterEngine(processingUnit);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.chuyachia.chip8emulator;
+
+// Every compiled block gets a loader of its own, so its class can be unloaded once the block is invalidated
+class JitClassLoader extends ClassLoader {
+
+    JitClassLoader(ClassLoader parent) {
+        super(parent);
+    }
+
+    Class<?> define(String binaryName, byte[] classFile) {
+        return defineClass(binaryName, classFile, 0, classFile.length);
+    }
+}
@@ -1,89 +1,88 @@
 package com.chuyachia.chip8emulator;
 
-import java.awt.*;
-import java.awt.event.KeyEvent;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Keyboard {
 
-    private static final Map<Integer, Short> KEYBOARD_MAP = new HashMap<>();
+    public final static int KEY_NUMBER = 16;
+    public final static int NO_KEY = -1;
+    private final static int PRESSED_MASK = 0xffff;
+    private final static int RELEASED_SHIFT = 16;
 
-    {
-        KEYBOARD_MAP.put(KeyEvent.VK_1, (short) (1 << 1));
-        KEYBOARD_MAP.put(KeyEvent.VK_2, (short) (1 << 2));
-        KEYBOARD_MAP.put(KeyEvent.VK_3, (short) (1 << 3));
-        KEYBOARD_MAP.put(KeyEvent.VK_4, (short) (1 << 12));
-        KEYBOARD_MAP.put(KeyEvent.VK_Q, (short) (1 << 4));
-        KEYBOARD_MAP.put(KeyEvent.VK_W, (short) (1 << 5));
-        KEYBOARD_MAP.put(KeyEvent.VK_E, (short) (1 << 6));
-        KEYBOARD_MAP.put(KeyEvent.VK_R, (short) (1 << 13));
-        KEYBOARD_MAP.put(KeyEvent.VK_A, (short) (1 << 7));
-        KEYBOARD_MAP.put(KeyEvent.VK_S, (short) (1 << 8));
-        KEYBOARD_MAP.put(KeyEvent.VK_D, (short) (1 << 9));
-        KEYBOARD_MAP.put(KeyEvent.VK_F, (short) (1 << 14));
-        KEYBOARD_MAP.put(KeyEvent.VK_Z, (short) (1 << 10));
-        KEYBOARD_MAP.put(KeyEvent.VK_X, (short) (1 << 0));
-        KEYBOARD_MAP.put(KeyEvent.VK_C, (short) (1 << 11));
-        KEYBOARD_MAP.put(KeyEvent.VK_V, (short) (1 << 15));
-    }
-
-    private short pressed;
-    private short lastPressed;
+    // Keys currently pressed in the low 16 bits, keys released since the last key wait started in the high 16 bits.
+    // Written by the AWT thread and read by the emulation thread without any lock.
+    private final AtomicInteger keys = new AtomicInteger();
+    // Copy of keys taken by the emulation thread at the start of each frame. Instructions only see input change from
+    // one frame to the next, so a run can be reproduced from the changes of this value alone.
+    private int latched;
     public AtomicBoolean escapePressed = new AtomicBoolean();
     public AtomicBoolean savePressed = new AtomicBoolean();
+    // Held down rather than toggled, the emulation steps back one frame per frame while it is set
+    public AtomicBoolean rewindPressed = new AtomicBoolean();
+
+    public void press(int key) {
+        int keyValueMask = 1 << key;
+        int current;
+        do {
+            current = keys.get();
+        } while (!keys.compareAndSet(current, current | keyValueMask));
+    }
+
+    public void release(int key) {
+        int keyValueMask = 1 << key;
+        int current;
+        do {
+            current = keys.get();
+            if ((current & keyValueMask) == 0) {
+                return;
+            }
+        } while (!keys.compareAndSet(current, current & ~keyValueMask | keyValueMask << RELEASED_SHIFT));
+    }
 
-    public Keyboard() {
-        KeyboardFocusManager keyboardFocusManager = KeyboardFocusManager.getCurrentKeyboardFocusManager();
+    // Returns true when the keys changed since the previous latch
+    public boolean latch() {
+        int current = keys.get();
+        if (current == latched) {
+            return false;
+        }
 
-        keyboardFocusManager.addKeyEventDispatcher((KeyEvent e) -> {
-            synchronized (this) {
-                if (e.getID()== KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                    escapePressed.set(true);
-                    return false;
-                }
+        latched = current;
+        return true;
+    }
 
-                if (e.getID()== KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_SPACE) {
-                    savePressed.set(true);
-                    return false;
-                }
+    public int getLatched() {
+        return latched;
+    }
 
-                Short key = KEYBOARD_MAP.get(e.getKeyCode());
-                if (key != null) {
-                    lastPressed = key;
-                    notify();
-                    switch (e.getID()) {
-                        case KeyEvent.KEY_PRESSED:
-                            pressed |= key;
-                            break;
-                        case KeyEvent.KEY_RELEASED:
-                            pressed ^= key;
-                            break;
-                    }
-                }
+    // Replaces the keys pressed and released at once, for replaying a recorded session
+    void setKeys(int value) {
+        keys.set(value);
+    }
 
-                return false;
-            }
-        });
+    // Forgets keys released before, a key wait completes on the next release
+    public void startKeyWait() {
+        int current;
+        do {
+            current = keys.get();
+        } while (!keys.compareAndSet(current, current & PRESSED_MASK));
+        latched &= PRESSED_MASK;
     }
 
-    public byte waitForInput() throws InterruptedException {
-        synchronized (this) {
-            wait();
-            return (byte) (Math.log(lastPressed & 0xffff) / Math.log(2));
-        }
+    // Returns the lowest key released since the key wait started, or NO_KEY
+    public int takeReleasedKey() {
+        int released = latched >>> RELEASED_SHIFT;
+        return released == 0 ? NO_KEY : Integer.numberOfTrailingZeros(released);
     }
 
     public boolean isPressed(byte key) {
-        int keyValue = key & 0xff;
-        short keyValueMask = (short) (1 << keyValue);
-        return (pressed & keyValueMask) == keyValueMask;
+        // Masked to 16 bits as in the original short mask, so keys above F keep their former result
+        int keyValueMask = (1 << (key & 0xff)) & PRESSED_MASK;
+        return (latched & keyValueMask) == keyValueMask;
     }
 
-
     public void clear() {
-        pressed = 0;
-        lastPressed = 0;
+        keys.set(0);
+        latched = 0;
     }
 }
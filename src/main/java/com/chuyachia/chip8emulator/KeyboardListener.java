@@ -0,0 +1,76 @@
+package com.chuyachia.chip8emulator;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.util.HashMap;
+import java.util.Map;
+
+public class KeyboardListener implements KeyEventDispatcher {
+
+    private static final Map<Integer, Integer> KEYBOARD_MAP = new HashMap<>();
+
+    static {
+        KEYBOARD_MAP.put(KeyEvent.VK_1, 1);
+        KEYBOARD_MAP.put(KeyEvent.VK_2, 2);
+        KEYBOARD_MAP.put(KeyEvent.VK_3, 3);
+        KEYBOARD_MAP.put(KeyEvent.VK_4, 12);
+        KEYBOARD_MAP.put(KeyEvent.VK_Q, 4);
+        KEYBOARD_MAP.put(KeyEvent.VK_W, 5);
+        KEYBOARD_MAP.put(KeyEvent.VK_E, 6);
+        KEYBOARD_MAP.put(KeyEvent.VK_R, 13);
+        KEYBOARD_MAP.put(KeyEvent.VK_A, 7);
+        KEYBOARD_MAP.put(KeyEvent.VK_S, 8);
+        KEYBOARD_MAP.put(KeyEvent.VK_D, 9);
+        KEYBOARD_MAP.put(KeyEvent.VK_F, 14);
+        KEYBOARD_MAP.put(KeyEvent.VK_Z, 10);
+        KEYBOARD_MAP.put(KeyEvent.VK_X, 0);
+        KEYBOARD_MAP.put(KeyEvent.VK_C, 11);
+        KEYBOARD_MAP.put(KeyEvent.VK_V, 15);
+    }
+
+    private final Keyboard keyboard;
+
+    public KeyboardListener(Keyboard keyboard) {
+        this.keyboard = keyboard;
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(this);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent e) {
+        if (e.getID()== KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+            keyboard.escapePressed.set(true);
+            return false;
+        }
+
+        if (e.getID()== KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_SPACE) {
+            keyboard.savePressed.set(true);
+            return false;
+        }
+
+        if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+            switch (e.getID()) {
+                case KeyEvent.KEY_PRESSED:
+                    keyboard.rewindPressed.set(true);
+                    break;
+                case KeyEvent.KEY_RELEASED:
+                    keyboard.rewindPressed.set(false);
+                    break;
+            }
+            return false;
+        }
+
+        Integer key = KEYBOARD_MAP.get(e.getKeyCode());
+        if (key != null) {
+            switch (e.getID()) {
+                case KeyEvent.KEY_PRESSED:
+                    keyboard.press(key);
+                    break;
+                case KeyEvent.KEY_RELEASED:
+                    keyboard.release(key);
+                    break;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package com.chuyachia.chip8emulator;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+// Plays the samples on the default audio device
+class LineSink implements AudioSink {
+
+    private final SourceDataLine line;
+
+    private LineSink(SourceDataLine line) {
+        this.line = line;
+    }
+
+    // The line buffers just a few chunks so that the tone follows the sound timer closely
+    static LineSink open(int bufferBytes) throws LineUnavailableException {
+        SourceDataLine line = AudioSystem.getSourceDataLine(FORMAT);
+        line.open(FORMAT, bufferBytes);
+        line.start();
+        return new LineSink(line);
+    }
+
+    @Override
+    public void write(byte[] samples, int length) {
+        line.write(samples, 0, length);
+    }
+
+    @Override
+    public boolean isPaced() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        line.drain();
+        line.close();
+    }
+}
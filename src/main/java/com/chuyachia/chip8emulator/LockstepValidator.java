@@ -0,0 +1,284 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Runs the same ROM and inputs on two engines side by side, comparing the whole guest state every interval
+// instructions. On the first divergence the run is replayed up to it, one instruction at a time over the last
+// TRACE_LENGTH instructions, so that the exact instruction and the opcodes leading to it can be reported.
+public class LockstepValidator {
+
+    final static int TRACE_LENGTH = 256;
+    private final static long DEFAULT_CYCLES = 100_000_000;
+    private final static int DEFAULT_INTERVAL = 1_000;
+    private final static int DEFAULT_CLOCK_RATE = 500;
+    private final static long SEED = 0;
+
+    private final CpuEngineProvider reference;
+    private final CpuEngineProvider candidate;
+    private final int interval;
+
+    LockstepValidator(CpuEngineProvider reference, CpuEngineProvider candidate, int interval) {
+        this.reference = reference;
+        this.candidate = candidate;
+        this.interval = interval;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: LockstepValidator <rom>[=<input script>]...");
+            System.out.println("Options: -Dchip8.cycles=<per ROM> -Dchip8.clockRate=<Hz> -Dchip8.interval=<instructions> "
+                    + "-Dchip8.reference=<engine> -Dchip8.engine=<engine> -Dchip8.threads=<count>");
+            return;
+        }
+
+        long cycles = Long.getLong("chip8.cycles", DEFAULT_CYCLES);
+        int clockRate = Integer.getInteger("chip8.clockRate", DEFAULT_CLOCK_RATE);
+        List<BatchRunner.Job> jobs = BatchRunner.parseJobs(args, cycles, clockRate);
+
+        String reference = System.getProperty("chip8.reference", CpuEngines.INTERPRETER);
+        String candidate = System.getProperty("chip8.engine", CpuEngines.JIT);
+        for (String engine : new String[]{reference, candidate}) {
+            if (CpuEngines.provider(engine) == null) {
+                System.out.println(String.format("Unknown engine %s, available engines are %s", engine, CpuEngines.names()));
+                System.exit(2);
+            }
+        }
+        LockstepValidator validator = new LockstepValidator(CpuEngines.provider(reference), CpuEngines.provider(candidate),
+                Integer.getInteger("chip8.interval", DEFAULT_INTERVAL));
+
+        int threads = Integer.getInteger("chip8.threads", Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        List<Result> results = validator.run(jobs, threads);
+        long elapsed = System.nanoTime() - start;
+
+        boolean diverged = false;
+        long instructions = 0;
+        for (Result result : results) {
+            System.out.print(result);
+            diverged |= result.divergence != null;
+            instructions += result.instructions;
+        }
+        System.out.println(String.format("%s against %s: %d ROMs, %d instructions in %d ms, %s", candidate, reference,
+                results.size(), instructions, elapsed / 1_000_000, diverged ? "DIVERGED" : "identical"));
+        if (diverged) {
+            System.exit(1);
+        }
+    }
+
+    // Results come back in the order of the jobs
+    List<Result> run(List<BatchRunner.Job> jobs, int parallelism) {
+        return BatchRunner.runAll(jobs, parallelism, this::run);
+    }
+
+    Result run(BatchRunner.Job job) {
+        Result result = run(job, Long.MAX_VALUE);
+        if (result.divergence == null) {
+            return result;
+        }
+
+        // Same inputs, same seed, the replay goes through the same states up to the last ones that agreed
+        Result traced = run(job, Math.max(0, result.agreedInstructions - TRACE_LENGTH));
+        return traced.divergence != null ? traced : result;
+    }
+
+    // From traceFrom instructions on, both machines run one instruction at a time and record what they execute
+    private Result run(BatchRunner.Job job, long traceFrom) {
+        Side expected = new Side(job, reference);
+        Side actual = new Side(job, candidate);
+        int nextInput = 0;
+        long frame = 0;
+        long agreed = 0;
+        while (expected.processingUnit.getInstructionCount() < job.cycles) {
+            int input = nextInput;
+            nextInput = job.script.apply(input, frame, expected.keyboard);
+            job.script.apply(input, frame, actual.keyboard);
+            int budget = expected.processingUnit.beginFrame();
+            actual.processingUnit.beginFrame();
+
+            int done = 0;
+            while (done < budget) {
+                long count = expected.processingUnit.getInstructionCount();
+                int instructions = count >= traceFrom ? 1 : (int) Math.min(Math.min(interval, budget - done), traceFrom - count);
+                expected.run(instructions, count >= traceFrom);
+                actual.run(instructions, count >= traceFrom);
+                done += instructions;
+
+                String difference = compare(expected, actual);
+                if (difference != null) {
+                    return new Result(job.name, expected.processingUnit.getInstructionCount(), agreed,
+                            new Divergence(difference, frame, expected, actual));
+                }
+                agreed = expected.processingUnit.getInstructionCount();
+                if (expected.status != ProcessingUnit.CYCLE_OK) {
+                    return new Result(job.name, agreed, agreed, null);
+                }
+                // A halted CPU stops counting, the rest of the frame goes by
+                if (expected.processingUnit.isWaitingForKey()) {
+                    break;
+                }
+            }
+
+            expected.processingUnit.endFrame();
+            actual.processingUnit.endFrame();
+            frame++;
+            if (expected.processingUnit.isWaitingForKey() && !job.script.hasEntriesFrom(nextInput)) {
+                break;
+            }
+        }
+
+        return new Result(job.name, agreed, agreed, null);
+    }
+
+    // First part of the guest state the two machines disagree on, null when they are the same
+    private static String compare(Side expected, Side actual) {
+        ProcessingUnit a = expected.processingUnit;
+        ProcessingUnit b = actual.processingUnit;
+        if (expected.status != actual.status) {
+            return "status";
+        }
+        if (a.getInstructionCount() != b.getInstructionCount()) {
+            return "instruction count";
+        }
+        // The whole guest state is one array, the parts only need to be told apart once it differs
+        a.storeState();
+        b.storeState();
+        if (Arrays.equals(expected.memory.getState(), actual.memory.getState())) {
+            return null;
+        }
+        if (expected.memory.getPC() != actual.memory.getPC()) {
+            return "PC";
+        }
+        if (!MachineState.sameRange(a.getV(), 0, b.getV(), 0, MachineState.GENERAL_REGISTERS)) {
+            return "V";
+        }
+        if (a.getI() != b.getI()) {
+            return "I";
+        }
+        if (a.getDT() != b.getDT()) {
+            return "DT";
+        }
+        if (a.getST() != b.getST()) {
+            return "ST";
+        }
+        if (!a.getStack().sameAs(b.getStack())) {
+            return "stack";
+        }
+        if (a.isWaitingForKey() != b.isWaitingForKey()) {
+            return "key wait";
+        }
+        if (!Arrays.equals(expected.memory.getMemory(), actual.memory.getMemory())) {
+            return "memory";
+        }
+        if (expected.frameBuffer.isHires() != actual.frameBuffer.isHires()
+                || expected.frameBuffer.getCollision() != actual.frameBuffer.getCollision()
+                || !Arrays.equals(expected.frameBuffer.getRows(), actual.frameBuffer.getRows())) {
+            return "frame buffer";
+        }
+
+        return "RPL flags";
+    }
+
+    // One of the two machines, with the instructions it executed one at a time
+    private static class Side extends BatchRunner.HeadlessMachine {
+        final String engineName;
+        final CpuEngine engine;
+        final short[] traceAddresses = new short[TRACE_LENGTH];
+        final short[] traceOpcodes = new short[TRACE_LENGTH];
+        int traced;
+        int status = ProcessingUnit.CYCLE_OK;
+
+        Side(BatchRunner.Job job, CpuEngineProvider provider) {
+            super(job.rom, QuirkProfile.forRom(job.rom), job.clockRate, SEED);
+            this.engineName = provider.getName();
+            engine = provider.create(processingUnit);
+            processingUnit.setEngine(engine);
+        }
+
+        void run(int instructions, boolean trace) {
+            if (trace && !processingUnit.isWaitingForKey()) {
+                int address = memory.getPC() & 0xffff;
+                int slot = traced++ % TRACE_LENGTH;
+                traceAddresses[slot] = (short) address;
+                traceOpcodes[slot] = (short) ((memory.getByte(address) & 0xff) << 8
+                        | memory.getByte((address + 1) % Memory.MEMORY_SIZE) & 0xff);
+            }
+            status = engine.run(instructions);
+        }
+
+        void writeState(StringBuilder out) {
+            CRC32 crc = new CRC32();
+            crc.update(memory.getMemory());
+            out.append(String.format("  %s: %d instructions, status %s%n", engineName,
+                    processingUnit.getInstructionCount(), status == ProcessingUnit.CYCLE_OK ? "ok"
+                            : processingUnit.describeStatus(status)));
+            out.append(String.format("    PC %03X I %03X DT %02X ST %02X key wait %b stack %s%n", memory.getPC() & 0xffff,
+                    processingUnit.getI() & 0xffff, processingUnit.getDT() & 0xff, processingUnit.getST() & 0xff,
+                    processingUnit.isWaitingForKey(), processingUnit.getStack()));
+            out.append("    V");
+            byte[] V = processingUnit.getV();
+            for (int i = 0; i < MachineState.GENERAL_REGISTERS; i++) {
+                out.append(String.format(" %02X", V[i] & 0xff));
+            }
+            out.append(String.format("%n    memory %08x frame %016x%s%n", crc.getValue(),
+                    SessionLog.hash(frameBuffer), frameBuffer.isHires() ? " high resolution" : ""));
+        }
+
+        void writeTrace(StringBuilder out) {
+            out.append(String.format("  Last %d instructions on %s:%n", Math.min(traced, TRACE_LENGTH), engineName));
+            for (int i = Math.max(0, traced - TRACE_LENGTH); i < traced; i++) {
+                int slot = i % TRACE_LENGTH;
+                Instruction instruction = Instruction.getMatched(traceOpcodes[slot]);
+                out.append(String.format("    %03X %04X %s%n", traceAddresses[slot] & 0xffff, traceOpcodes[slot] & 0xffff,
+                        instruction == null ? "unknown" : instruction));
+            }
+        }
+    }
+
+    static class Divergence {
+        final String difference;
+        final long frame;
+        final String report;
+
+        private Divergence(String difference, long frame, Side expected, Side actual) {
+            this.difference = difference;
+            this.frame = frame;
+            StringBuilder out = new StringBuilder();
+            expected.writeState(out);
+            actual.writeState(out);
+            if (expected.traced > 0) {
+                expected.writeTrace(out);
+                actual.writeTrace(out);
+            }
+            report = out.toString();
+        }
+    }
+
+    static class Result {
+        final String name;
+        final long instructions;
+        // Instruction count of the last comparison both machines agreed on
+        final long agreedInstructions;
+        // Null when the engines agreed for the whole run
+        final Divergence divergence;
+
+        Result(String name, long instructions, long agreedInstructions, Divergence divergence) {
+            this.name = name;
+            this.instructions = instructions;
+            this.agreedInstructions = agreedInstructions;
+            this.divergence = divergence;
+        }
+
+        @Override
+        public String toString() {
+            if (divergence == null) {
+                return String.format("%s: %d instructions, identical%n", name, instructions);
+            }
+
+            return String.format("%s: %s differs in frame %d, after instruction %d%n%s", name, divergence.difference,
+                    divergence.frame, agreedInstructions, divergence.report);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.chuyachia.chip8emulator;
+
+// Layout of the one byte array all the guest visible state lives in, big endian and in the order of a save state:
+// V0-VF, I, DT, ST, PC, stack pointer and levels, key wait register, RPL flags, memory, frame rows, collision and
+// high resolution. Memory allocates it, the other parts of the machine read and write their fields in place, so
+// the whole machine is saved or restored with a single array copy. Only the PC and the frame rows are held by Memory
+// and FrameBuffer while the machine runs and stored here before a copy, see ProcessingUnit.storeState.
+final class MachineState {
+
+    // V0-VF
+    final static int GENERAL_REGISTERS = 16;
+
+    final static int V = 0;
+    final static int I = V + GENERAL_REGISTERS;
+    final static int DT = I + 2;
+    final static int ST = DT + 1;
+    final static int PC = ST + 1;
+    final static int STACK = PC + 2;
+    final static int KEY_WAIT = STACK + Stack.SIZE;
+    final static int RPL = KEY_WAIT + 1;
+    final static int MEMORY = RPL + GENERAL_REGISTERS;
+    final static int ROWS = MEMORY + Memory.MEMORY_SIZE;
+    final static int COLLISION = ROWS + FrameBuffer.WORDS * Long.BYTES;
+    final static int HIRES = COLLISION + 1;
+    final static int SIZE = HIRES + 1;
+
+    private MachineState() {
+    }
+
+    static byte[] allocate() {
+        return new byte[SIZE];
+    }
+
+    // Plain byte accesses, cheap to inline even in the large interpreter switch
+    static short getShort(byte[] state, int offset) {
+        return (short) (state[offset] << 8 | state[offset + 1] & 0xff);
+    }
+
+    static void setShort(byte[] state, int offset, short value) {
+        state[offset] = (byte) (value >> 8);
+        state[offset + 1] = (byte) value;
+    }
+
+    static long getLong(byte[] state, int offset) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = value << 8 | state[offset + i] & 0xff;
+        }
+
+        return value;
+    }
+
+    static void setLong(byte[] state, int offset, long value) {
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            state[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    // Whether length bytes from the two offsets are the same
+    static boolean sameRange(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aOffset + i] != b[bOffset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -2,10 +2,16 @@ package com.chuyachia.chip8emulator;
 
 import java.util.Arrays;
 
+// Guest memory, held in the machine state along with the rest of the guest state, see MachineState
 public class Memory {
 
     public final static int SPRITE_SIZE = 5;
-    private final static int MEMORY_SIZE = 4096;
+    // SUPER-CHIP 8x10 digits, right after the small ones
+    public final static int BIG_SPRITE_SIZE = 10;
+    final static int BIG_SPRITES_START = 16 * SPRITE_SIZE;
+    final static int MEMORY_SIZE = 4096;
+    final static int PAGE_SIZE = 256;
+    final static int PAGE_NUMBER = MEMORY_SIZE / PAGE_SIZE;
     private final static int MEMORY_START = 0x200;
     private final static byte[][] DEFAULT_SPRITES = {
             {(byte) 0xF0, (byte) 0x90, (byte) 0x90, (byte) 0x90, (byte) 0xF0},
@@ -25,23 +31,44 @@ public class Memory {
             {(byte) 0xF0, (byte) 0x80, (byte) 0xF0, (byte) 0x80, (byte) 0xF0},
             {(byte) 0xF0, (byte) 0x80, (byte) 0xF0, (byte) 0x80, (byte) 0x80}
     };
+    private final static byte[][] BIG_SPRITES = {
+            {0x3C, 0x7E, (byte) 0xE7, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xE7, 0x7E, 0x3C},
+            {0x18, 0x38, 0x58, 0x18, 0x18, 0x18, 0x18, 0x18, 0x18, 0x3C},
+            {0x3E, 0x7F, (byte) 0xC3, 0x06, 0x0C, 0x18, 0x30, 0x60, (byte) 0xFF, (byte) 0xFF},
+            {0x3C, 0x7E, (byte) 0xC3, 0x03, 0x0E, 0x0E, 0x03, (byte) 0xC3, 0x7E, 0x3C},
+            {0x06, 0x0E, 0x1E, 0x36, 0x66, (byte) 0xC6, (byte) 0xFF, (byte) 0xFF, 0x06, 0x06},
+            {(byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xFC, (byte) 0xFE, 0x03, (byte) 0xC3, 0x7E, 0x3C},
+            {0x3E, 0x7C, (byte) 0xE0, (byte) 0xC0, (byte) 0xFC, (byte) 0xFE, (byte) 0xC3, (byte) 0xC3, 0x7E, 0x3C},
+            {(byte) 0xFF, (byte) 0xFF, 0x03, 0x06, 0x0C, 0x18, 0x30, 0x60, 0x60, 0x60},
+            {0x3C, 0x7E, (byte) 0xC3, (byte) 0xC3, 0x7E, 0x7E, (byte) 0xC3, (byte) 0xC3, 0x7E, 0x3C},
+            {0x3C, 0x7E, (byte) 0xC3, (byte) 0xC3, 0x7F, 0x3F, 0x03, 0x03, 0x3E, 0x7C},
+            {0x3C, 0x7E, (byte) 0xC3, (byte) 0xC3, (byte) 0xFF, (byte) 0xFF, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3},
+            {(byte) 0xFC, (byte) 0xFE, (byte) 0xC3, (byte) 0xC3, (byte) 0xFE, (byte) 0xFE, (byte) 0xC3, (byte) 0xC3, (byte) 0xFE, (byte) 0xFC},
+            {0x3C, 0x7E, (byte) 0xC3, (byte) 0xC0, (byte) 0xC0, (byte) 0xC0, (byte) 0xC0, (byte) 0xC3, 0x7E, 0x3C},
+            {(byte) 0xFC, (byte) 0xFE, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xFE, (byte) 0xFC},
+            {(byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xFE, (byte) 0xFE, (byte) 0xC0, (byte) 0xC0, (byte) 0xFF, (byte) 0xFF},
+            {(byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xFE, (byte) 0xFE, (byte) 0xC0, (byte) 0xC0, (byte) 0xC0, (byte) 0xC0}
+    };
 
+    private final byte[] state;
+    // Changes on every instruction so it stays in a field while the machine runs, storePC writes it to the machine
+    // state before the state gets copied or compared and loadPC reads it back after a restore
     private short programCounter;
-    private final byte[] memory;
+    // Bumped on every write to a page so that code decoded from it can be found stale
+    private final int[] pageVersions;
+    // Bumped on any write, lets decoded code skip the page checks when nothing was written since
+    private int writeVersion;
 
     public Memory() {
-        this.programCounter = MEMORY_START;
-        this.memory = new byte[MEMORY_SIZE];
+        this.state = MachineState.allocate();
+        this.pageVersions = new int[PAGE_NUMBER];
+        setPC((short) MEMORY_START);
         loadSpritesInReservedMemory();
     }
 
     public void loadGame(byte[] rom)  {
-        int currentMemory = MEMORY_START;
-
-        for (byte b : rom) {
-            memory[currentMemory] = b;
-            currentMemory++;
-        }
+        System.arraycopy(rom, 0, state, MachineState.MEMORY + MEMORY_START, rom.length);
+        invalidateAllPages();
     }
 
     public int availableMemory() {
@@ -49,7 +76,7 @@ public class Memory {
     }
 
     public void increasePC(int n) {
-        programCounter = (short) ((programCounter & 0xffff) + n);
+        setPC((short) ((getPC() & 0xffff) + n));
     }
 
     public short getPC() {
@@ -60,42 +87,99 @@ public class Memory {
         programCounter = n;
     }
 
+    void storePC() {
+        MachineState.setShort(state, MachineState.PC, programCounter);
+    }
+
+    void loadPC() {
+        programCounter = MachineState.getShort(state, MachineState.PC);
+    }
+
     public byte getByte(int i) {
-        return memory[i];
+        return state[MachineState.MEMORY + checkAddress(i)];
     }
 
     public void setByte(int i, byte b) {
-        memory[i] = b;
+        state[MachineState.MEMORY + checkAddress(i)] = b;
+        pageVersions[i / PAGE_SIZE]++;
+        writeVersion++;
     }
 
+    int getPageVersion(int page) {
+        return pageVersions[page];
+    }
+
+    int getWriteVersion() {
+        return writeVersion;
+    }
+
+    // A copy of the memory
     public byte[] getMemory() {
-        return memory;
+        return Arrays.copyOfRange(state, MachineState.MEMORY, MachineState.MEMORY + MEMORY_SIZE);
     }
 
     public void setMemory(byte[] values) {
-        for (int i = 0 ; i < values.length; i++) {
-            this.memory[i] = values[i];
-        }
+        System.arraycopy(values, 0, state, MachineState.MEMORY, values.length);
+        invalidateAllPages();
+    }
+
+    // The whole machine state, the processing unit and the frame buffer keep their part of it there too. The PC and
+    // the frame rows in it are only current after ProcessingUnit.storeState.
+    byte[] getState() {
+        return state;
+    }
+
+    // Copies the page from another machine state
+    void restorePage(int page, byte[] source) {
+        int start = MachineState.MEMORY + page * PAGE_SIZE;
+        System.arraycopy(source, start, state, start, PAGE_SIZE);
+        pageVersions[page]++;
+        writeVersion++;
     }
 
     public short nextInstruction() {
-        short instruction = constructInstruction(memory[programCounter], memory[++programCounter]);
-        programCounter++;
+        int pc = getPC();
+        short instruction = constructInstruction(getByte(pc), getByte(pc + 1));
+        setPC((short) (pc + 2));
 
         return instruction;
     }
 
     public void clear() {
-        programCounter = MEMORY_START;
-        Arrays.fill(memory, (byte) 0);
+        setPC((short) MEMORY_START);
+        Arrays.fill(state, MachineState.MEMORY, MachineState.MEMORY + MEMORY_SIZE, (byte) 0);
         loadSpritesInReservedMemory();
+        invalidateAllPages();
+    }
+
+    // Anything may have changed, code decoded from memory has to be checked again
+    void invalidateAllPages() {
+        for (int i = 0; i < PAGE_NUMBER; i++) {
+            pageVersions[i]++;
+        }
+        writeVersion++;
+    }
+
+    // Addresses past the memory fail instead of reaching the state stored after it
+    private static int checkAddress(int i) {
+        if (i < 0 || i >= MEMORY_SIZE) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+
+        return i;
     }
 
     private void loadSpritesInReservedMemory() {
-        int i = 0;
+        int i = MachineState.MEMORY;
         for (byte[] sprite : DEFAULT_SPRITES) {
             for (byte b : sprite) {
-                memory[i] = b;
+                state[i] = b;
+                i++;
+            }
+        }
+        for (byte[] sprite : BIG_SPRITES) {
+            for (byte b : sprite) {
+                state[i] = b;
                 i++;
             }
         }
@@ -1,98 +1,246 @@
 package com.chuyachia.chip8emulator;
 
-import javax.swing.*;
-import java.awt.*;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Random;
 
 public class ProcessingUnit  {
-    private final static int REFRESH_RATE = 60;
     private final static int DEFAULT_CLOCK_RATE = 500;
     private final static int GENERAL_REGISTERS_NUMBER = 16;
+    private final static int NOT_WAITING = -1;
+
+    final static int CYCLE_OK = 0;
+    final static int UNKNOWN_INSTRUCTION = 1;
+    final static int STACK_OVERFLOW = 2;
+    final static int STACK_UNDERFLOW = 3;
+    final static int INTERRUPTED = 4;
+    final static int PROGRAM_EXITED = 5;
 
     private final Memory memory;
     private final Random random;
-    private final Screen screen;
+    private final FrameBuffer frameBuffer;
     private final Keyboard keyboard;
-    // 16 8 bits general purpose registers
+    private final Frontend frontend;
+    private final Speaker speaker;
+    private final FrameScheduler scheduler;
+    private final BlockContext blockContext;
+    private final SaveStateWriter saveStateWriter;
+    private final IdleLoopDetector idleLoopDetector;
+    // Runs the instructions of each frame, the interpreter unless another engine got selected
+    private CpuEngine engine;
+    private QuirkProfile quirkProfile = QuirkProfile.MODERN;
+    // Decodes to the variants of the instructions the profile affects
+    private Instruction[] decodeTable = quirkProfile.decodeTable;
+    private RewindBuffer rewindBuffer;
+    private SessionLog sessionLog;
+    // Null unless profiling, frames then run through runProfiledInstructions whatever the engine
+    private Profiler profiler;
+    // Null unless the interactive loop is timed
+    private FrameMetrics frameMetrics;
+    // Registers, stack, key wait register and RPL flags live in the machine state the memory is part of, along with
+    // the frame buffer, at the offsets of MachineState
+    private final byte[] state;
+    // 16 8 bits general purpose registers, the first bytes of the machine state
     private final byte[] V;
-    // 16 bits register I
-    private short I;
-    // Delay timer register
-    private byte DT;
-    // Sound timer register
-    private byte ST;
-    private Stack stack;
-
-    private final JFileChooser fileChooser = new JFileChooser();
-
-    private int clockRate;
-    private int refreshCycle;
-    private long cpuWaitTime;
-
-
-    public ProcessingUnit(Memory memory, Screen screen, Keyboard keyboard) {
-        this.clockRate = DEFAULT_CLOCK_RATE;
-        this.refreshCycle = clockRate / REFRESH_RATE;
-        this.cpuWaitTime = (1 * 1000 / clockRate);
+    private final Stack stack;
+    private short lastInstruction;
+    private long instructionCount;
+    // Whole turns of idle loops are counted without being run, see IdleLoopDetector
+    private boolean idleLoopSkipping = true;
+    private long idleInstructions;
+    // Draws, screen clears and random numbers so far, none of them can be part of an idle loop
+    private int sideEffects;
+
+
+    public ProcessingUnit(Memory memory, FrameBuffer frameBuffer, Keyboard keyboard, Frontend frontend, Speaker speaker) {
+        this.scheduler = new FrameScheduler(DEFAULT_CLOCK_RATE);
+        this.blockContext = new CompiledBlockContext();
+        this.saveStateWriter = new SaveStateWriter(frontend);
+        this.idleLoopDetector = new IdleLoopDetector(this, memory);
         this.memory = memory;
-        this.screen = screen;
+        this.frameBuffer = frameBuffer;
         this.keyboard = keyboard;
-        V = new byte[GENERAL_REGISTERS_NUMBER];
-        stack = new Stack();
+        this.frontend = frontend;
+        this.speaker = speaker;
+        state = memory.getState();
+        frameBuffer.bind(state);
+        V = state;
+        stack = new Stack(state, MachineState.STACK);
+        resetRegisters();
         random = new Random();
-        fileChooser.setDialogTitle("Save");
-        fileChooser.setApproveButtonText("Save");
+        engine = new InterpreterEngine(this);
     }
 
     public void start() {
-        int refresh = 0;
+        scheduler.reset();
+        // Only interactive runs can rewind, the arena is not worth allocating for headless ones
+        if (rewindBuffer == null) {
+            rewindBuffer = new RewindBuffer(this, memory);
+        }
+        rewindBuffer.clear();
+        if (frameMetrics != null) {
+            frameMetrics.sessionStarted(System.nanoTime(), instructionCount);
+        }
 
         while (!keyboard.escapePressed.get()) {
+            long frameStart = System.nanoTime();
+            if (frameMetrics != null) {
+                frameMetrics.frameStarted(frameStart, instructionCount);
+            }
             if (keyboard.savePressed.get()) {
-                handleSaveState();
+                saveStateWriter.save(this);
                 keyboard.savePressed.set(false);
             }
 
-            long start = System.currentTimeMillis();
-            try {
-                runInstructionCycle();
-            } catch (Exception e) {
-                System.out.println(e.getMessage());
+            // Rewinding would break the recorded session, it could no longer be replayed from the start
+            if (keyboard.rewindPressed.get() && sessionLog == null) {
+                if (rewindBuffer.stepBack()) {
+                    frameBuffer.publish();
+                    frontend.frameReady();
+                }
+            } else {
+                int status = runFrame();
+                if (status != CYCLE_OK) {
+                    System.out.println(describeStatus(status));
+                    break;
+                }
+                rewindBuffer.capture();
+            }
+            if (frameMetrics != null) {
+                frameMetrics.frameEmulated(System.nanoTime() - frameStart);
+            }
+
+            if (!scheduler.awaitNextFrame()) {
+                System.out.println(describeStatus(INTERRUPTED));
                 break;
             }
+            if (frameMetrics != null) {
+                frameMetrics.frameAwaited(scheduler.getLastOvershoot());
+            }
+        }
 
-            if (refresh == refreshCycle) {
-                if (screen.shouldRepaint()) {
-                    screen.repaint();
-                }
-                if (DT > 0) {
-                    DT--;
-                }
+        end();
+    }
 
-                if (ST > 0) {
-                    Toolkit.getDefaultToolkit().beep();
-                    ST--;
-                }
+    // Runs whole frames without pacing until at least the given number of instructions got executed,
+    // stops early on the first failing cycle or when the CPU halts for a key nobody is going to press
+    public long runCycles(long cycles) {
+        long startCount = instructionCount;
+        while (instructionCount - startCount < cycles) {
+            if (isWaitingForKey() && !resumeFromKeyWait()) {
+                break;
+            }
 
-                refresh = 0;
+            int status = runFrame();
+            if (status != CYCLE_OK) {
+                System.out.println(describeStatus(status));
+                break;
             }
+        }
 
-            try {
-                Thread.sleep(Math.max(0, cpuWaitTime - (System.currentTimeMillis() - start)));
-            } catch (InterruptedException e) {
-                System.out.println(e.getMessage());
-                end();
+        return instructionCount - startCount;
+    }
+
+    int runFrame() {
+        int instructions = beginFrame();
+        int status;
+        if (profiler != null) {
+            status = runProfiledInstructions(instructions);
+        } else {
+            status = engine.run(instructions);
+        }
+        if (status != CYCLE_OK) {
+            return status;
+        }
+
+        endFrame();
+        return CYCLE_OK;
+    }
+
+    // Latches the keys for the frame and returns the number of instructions it runs
+    int beginFrame() {
+        if (keyboard.latch() && sessionLog != null) {
+            sessionLog.keysChanged(instructionCount, keyboard.getLatched());
+        }
+        return scheduler.instructionsForFrame();
+    }
+
+    // Same as InterpreterEngine.run with every instruction counted and timed, kept apart so that the engines pay nothing
+    int runProfiledInstructions(int instructions) {
+        for (int i = 0; i < instructions; i++) {
+            if (isWaitingForKey() && !resumeFromKeyWait()) {
                 break;
             }
+            int address = memory.getPC() & 0xffff;
+            short instruction = fetch();
+            lastInstruction = instruction;
+            Instruction instructionPattern = decode(instruction);
+            if (instructionPattern == null) {
+                return UNKNOWN_INSTRUCTION;
+            }
+            long start = System.nanoTime();
+            int status = execute(instruction, instructionPattern);
+            long nanos = System.nanoTime() - start;
+            if (status != CYCLE_OK) {
+                return status;
+            }
+            profiler.record(address, instructionPattern, memory.getPC() & 0xffff, nanos);
+            instructionCount++;
+        }
+
+        return CYCLE_OK;
+    }
 
-            refresh++;
+    // Called after a control transfer back, counts as executed the whole turns of an idle loop that fit in the
+    // remaining instructions. The CPU ends up in the same state as if it had run them.
+    int skipIdleTurns(int remaining) {
+        long period = idleLoopDetector.backEdge(memory.getPC() & 0xffff);
+        if (period == 0 || isWaitingForKey()) {
+            return 0;
         }
 
-        end();
+        int skipped = (int) (remaining / period * period);
+        instructionCount += skipped;
+        idleInstructions += skipped;
+        return skipped;
+    }
+
+    // The CPU stays halted and frames go on until a key gets released
+    boolean resumeFromKeyWait() {
+        int key = keyboard.takeReleasedKey();
+        if (key == Keyboard.NO_KEY) {
+            return false;
+        }
+
+        V[state[MachineState.KEY_WAIT]] = (byte) key;
+        state[MachineState.KEY_WAIT] = NOT_WAITING;
+        return true;
+    }
+
+    boolean isWaitingForKey() {
+        return state[MachineState.KEY_WAIT] != NOT_WAITING;
+    }
+
+    // Ticks the timers and hands the frame over once its instructions ran
+    void endFrame() {
+        byte dt = getDT();
+        if (dt != 0) {
+            setDT((byte) (dt - 1));
+        }
+
+        byte st = getST();
+        speaker.setTone(st != 0);
+        if (st != 0) {
+            setST((byte) (st - 1));
+        }
+
+        if (frameBuffer.shouldRepaint() && scheduler.presentationDue()) {
+            frameBuffer.publish();
+            frontend.frameReady();
+        }
+        if (sessionLog != null) {
+            sessionLog.frameEnded(frameBuffer);
+        }
     }
 
     void setV(byte[] value) {
@@ -102,276 +250,532 @@ public class ProcessingUnit  {
     }
 
     void setI(short value) {
-        I = value;
+        MachineState.setShort(state, MachineState.I, value);
     }
 
     void setDT(byte value) {
-        DT = value;
+        state[MachineState.DT] = value;
     }
 
     void setST(byte value) {
-        ST = value;
+        state[MachineState.ST] = value;
     }
 
     void setStack(Stack value) {
-        stack = value;
+        stack.copyFrom(value);
     }
 
     void setClockRate(int rate) {
-        clockRate = rate;
-        refreshCycle = clockRate / REFRESH_RATE;
-        cpuWaitTime = (1 * 1000) / clockRate;
-    }
-
-    private void handleSaveState() {
-        File defaultSavedFile = new File(String.format("chip8_%d.ser", System.currentTimeMillis()));
-        fileChooser.setSelectedFile(defaultSavedFile);
-        int userInteraction = fileChooser.showOpenDialog(screen);
-        if (userInteraction == JFileChooser.APPROVE_OPTION) {
-            File savedFile = fileChooser.getSelectedFile();
-            try {
-                saveState(savedFile);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(screen, "Something went wrong when saving current emulation state");
-            }
-        }
+        scheduler.setClockRate(rate);
+    }
+
+    void setTurbo(boolean turbo) {
+        scheduler.setTurbo(turbo);
+    }
+
+    // Takes effect from the next instruction, the block cache decodes its blocks again with the variants of the profile
+    void setQuirkProfile(QuirkProfile profile) {
+        quirkProfile = profile;
+        decodeTable = profile.decodeTable;
+        memory.invalidateAllPages();
+    }
+
+    QuirkProfile getQuirkProfile() {
+        return quirkProfile;
+    }
+
+    CpuEngine getEngine() {
+        return engine;
+    }
+
+    void setEngine(CpuEngine engine) {
+        this.engine = engine;
     }
 
-    private String saveState(File savedFile) throws IOException {
-        try (FileOutputStream fileOutputStream = new FileOutputStream(savedFile);
-             ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream)) {
-            objectOutputStream.writeObject(V);
-            objectOutputStream.writeObject(I);
-            objectOutputStream.writeObject(DT);
-            objectOutputStream.writeObject(ST);
-            objectOutputStream.writeObject(stack);
-            objectOutputStream.writeObject(memory.getPC());
-            objectOutputStream.writeObject(memory.getMemory());
-            objectOutputStream.writeObject(screen.getPixels());
-            objectOutputStream.writeObject(screen.getCollision());
+    // False when no engine goes by that name, the current one is then kept
+    boolean setEngine(String name) {
+        CpuEngine selected = CpuEngines.create(name, this);
+        if (selected == null) {
+            return false;
         }
 
-        return savedFile.getName();
+        engine = selected;
+        return true;
+    }
+
+    int getClockRate() {
+        return scheduler.getClockRate();
+    }
+
+    void setFrameMetrics(FrameMetrics frameMetrics) {
+        this.frameMetrics = frameMetrics;
+    }
+
+    // Null stops profiling
+    void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    // Key changes and frame hashes get logged while set, null stops recording
+    void setSessionLog(SessionLog sessionLog) {
+        this.sessionLog = sessionLog;
+    }
+
+    void setRandomSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    // V0-VF are its first 16 bytes, the rest of the machine state follows them
+    byte[] getV() {
+        return V;
+    }
+
+    short getI() {
+        return MachineState.getShort(state, MachineState.I);
+    }
+
+    byte getDT() {
+        return state[MachineState.DT];
+    }
+
+    byte getST() {
+        return state[MachineState.ST];
+    }
+
+    long getInstructionCount() {
+        return instructionCount;
+    }
+
+    // Part of the instruction count that was skipped in idle loops
+    long getIdleInstructionCount() {
+        return idleInstructions;
+    }
+
+    int getSideEffects() {
+        return sideEffects;
+    }
+
+    Stack getStack() {
+        return stack;
+    }
+
+    void setIdleLoopSkipping(boolean enabled) {
+        idleLoopSkipping = enabled;
+    }
+
+    Memory getMemory() {
+        return memory;
+    }
+
+    BlockContext getBlockContext() {
+        return blockContext;
+    }
+
+    boolean isIdleLoopSkipping() {
+        return idleLoopSkipping;
+    }
+
+    void resetIdleLoop() {
+        idleLoopDetector.reset();
+    }
+
+    // Instructions executed by an engine without going through runInstructionCycle
+    void retire(int instructions) {
+        instructionCount += instructions;
+    }
+
+    void setLastInstruction(short instruction) {
+        lastInstruction = instruction;
+    }
+
+    // Writes the PC and the frame rows, which are held in fields while the machine runs, to the machine state
+    void storeState() {
+        memory.storePC();
+        frameBuffer.storeRows();
+    }
+
+    // Layout documented in MachineState, which is also the body of a save state
+    void saveTo(ByteBuffer buffer) {
+        storeState();
+        buffer.put(state);
+    }
+
+    void restoreFrom(ByteBuffer buffer) {
+        buffer.get(state);
+        memory.invalidateAllPages();
+        restored();
+    }
+
+    // The whole machine in one copy
+    void copyStateTo(byte[] target) {
+        storeState();
+        System.arraycopy(state, 0, target, 0, MachineState.SIZE);
+    }
+
+    void restoreState(byte[] source) {
+        System.arraycopy(source, 0, state, 0, MachineState.SIZE);
+        memory.invalidateAllPages();
+        restored();
+    }
+
+    // Everything but the memory, which RewindBuffer restores page by page
+    void restoreRegistersAndFrame(byte[] source) {
+        System.arraycopy(source, 0, state, 0, MachineState.MEMORY);
+        System.arraycopy(source, MachineState.ROWS, state, MachineState.ROWS, MachineState.SIZE - MachineState.ROWS);
+        restored();
+    }
+
+    private void restored() {
+        memory.loadPC();
+        frameBuffer.loadRows();
+        frameBuffer.setRepaintFlag(true);
+        if (isWaitingForKey()) {
+            keyboard.startKeyWait();
+        }
     }
 
     private void end() {
-        screen.clear();
+        speaker.setTone(false);
+        if (profiler != null) {
+            profiler.captureCode(memory);
+        }
+        frameBuffer.clear();
         memory.clear();
         keyboard.clear();
-        screen.backToEmulatorHome();
+        reset();
+        frontend.emulationEnded();
+    }
+
+    // The next game starts from the same state as on a new machine, which recorded sessions rely on
+    private void reset() {
+        resetRegisters();
+        lastInstruction = 0;
+        instructionCount = 0;
+        idleInstructions = 0;
+    }
+
+    // The PC is part of the memory and left as is
+    private void resetRegisters() {
+        Arrays.fill(state, MachineState.V, MachineState.PC, (byte) 0);
+        stack.clear();
+        state[MachineState.KEY_WAIT] = NOT_WAITING;
+        Arrays.fill(state, MachineState.RPL, MachineState.MEMORY, (byte) 0);
     }
 
-    private void runInstructionCycle() throws Exception {
+    int runInstructionCycle() {
         short instruction = fetch();
+        lastInstruction = instruction;
         Instruction instructionPattern = decode(instruction);
-        execute(instruction, instructionPattern);
+        if (instructionPattern == null) {
+            return UNKNOWN_INSTRUCTION;
+        }
 
+        return execute(instruction, instructionPattern);
+    }
+
+    String describeStatus(int status) {
+        switch (status) {
+            case UNKNOWN_INSTRUCTION:
+                return String.format("Unknown instruction encountered %s", Integer.toHexString(lastInstruction & 0xffff));
+            case STACK_OVERFLOW:
+                return "Stack overflow";
+            case STACK_UNDERFLOW:
+                return "Stack is empty";
+            case INTERRUPTED:
+                return "Interrupted while waiting for the next frame";
+            case PROGRAM_EXITED:
+                return "Program exited";
+            default:
+                return String.format("Unexpected status %d", status);
+        }
     }
 
     private short fetch() {
         return memory.nextInstruction();
     }
 
-    private Instruction decode(short instruction) throws Exception {
-        Instruction instructionPattern = Instruction.getMatched(instruction);
-
-        if (instructionPattern == null) {
-            throw new Exception(String.format("Unknown instruction encountered %s", Integer.toHexString(instruction & 0xffff)));
-        }
+    private Instruction decode(short instruction) {
+        return decodeTable[instruction & 0xffff];
+    }
 
-        return instructionPattern;
+    Instruction[] getDecodeTable() {
+        return decodeTable;
     }
 
-    private void execute(short instruction, Instruction instructionPattern) throws Exception {
-        short[] arguments = instructionPattern.getArguments(instruction);
+    int execute(short instruction, Instruction instructionPattern) {
         byte x, y, n , kk;
         short nnnn;
 
         switch (instructionPattern) {
             case CLS:
-                screen.clearDisplay();
-                return;
+                sideEffects++;
+                frameBuffer.clearDisplay();
+                return CYCLE_OK;
+            case SCD_N:
+                sideEffects++;
+                frameBuffer.scrollDown(Instruction.getN(instruction));
+                return CYCLE_OK;
+            case SCR:
+                sideEffects++;
+                frameBuffer.scrollRight();
+                return CYCLE_OK;
+            case SCL:
+                sideEffects++;
+                frameBuffer.scrollLeft();
+                return CYCLE_OK;
+            case EXIT:
+                return PROGRAM_EXITED;
+            case LOW:
+                sideEffects++;
+                frameBuffer.switchResolution(false);
+                return CYCLE_OK;
+            case HIGH:
+                sideEffects++;
+                frameBuffer.switchResolution(true);
+                return CYCLE_OK;
             case RET:
-                short addr = stack.pop();
-                memory.setPC(addr);
-                return;
+                int addr = stack.pop();
+                if (addr == Stack.EMPTY) {
+                    return STACK_UNDERFLOW;
+                }
+                memory.setPC((short) addr);
+                return CYCLE_OK;
             case JP_ADDR:
-                nnnn = Instruction.getNnnn(arguments);
+                nnnn = Instruction.getNnnn(instruction);
                 jumpToNnnn(nnnn);
-                return;
+                return CYCLE_OK;
             case CALL_ADDR:
-                nnnn = Instruction.getNnnn(arguments);
-                goToNnnn(nnnn);
-                return;
+                nnnn = Instruction.getNnnn(instruction);
+                return goToNnnn(nnnn) ? CYCLE_OK : STACK_OVERFLOW;
 
             case SE_VX:
-                x = Instruction.getX(arguments);
-                kk = Instruction.getKk(arguments);
+                x = Instruction.getX(instruction);
+                kk = Instruction.getKk(instruction);
                 skipIfVxKKEqual(x, kk);
-                return;
+                return CYCLE_OK;
 
             case SNE_VX:
-                x = Instruction.getX(arguments);
-                kk = Instruction.getKk(arguments);
+                x = Instruction.getX(instruction);
+                kk = Instruction.getKk(instruction);
                 skipIfVxKKNotEqual(x, kk);
-                return;
+                return CYCLE_OK;
 
             case SE_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
                 skipIfVxVyEqual(x, y);
-                return;
+                return CYCLE_OK;
 
             case LD_VX:
-                x = Instruction.getX(arguments);
-                kk = Instruction.getKk(arguments);
+                x = Instruction.getX(instruction);
+                kk = Instruction.getKk(instruction);
                 setVxToKk(x, kk);
-                return;
+                return CYCLE_OK;
 
             case ADD_VX:
-                x = Instruction.getX(arguments);
-                kk = Instruction.getKk(arguments);
+                x = Instruction.getX(instruction);
+                kk = Instruction.getKk(instruction);
                 addKkToVx(x, kk);
-                return;
+                return CYCLE_OK;
 
             case LD_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
                 storeVyValueInVx(x, y);
-                return;
+                return CYCLE_OK;
 
             case OR_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
                 orVxVy(x, y);
-                return;
+                return CYCLE_OK;
 
             case AND_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
                 andVxVy(x, y);
-                return;
+                return CYCLE_OK;
 
             case XOR_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
                 xorVxVy(x, y);
-                return;
+                return CYCLE_OK;
 
             case ADD_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
                 addVxVy(x, y);
-                return;
+                return CYCLE_OK;
 
             case SUB_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
                 subVxVy(x, y);
-                return;
+                return CYCLE_OK;
 
             case SHR_VX_VY:
-                x = Instruction.getX(arguments);
-                rightShiftVx(x);
-                return;
+                x = Instruction.getX(instruction);
+                rightShiftVx(x, x);
+                return CYCLE_OK;
+
+            case SHR_VX_FROM_VY:
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
+                rightShiftVx(x, y);
+                return CYCLE_OK;
 
             case SUBN_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
                 subVyVx(x, y);
-                return;
+                return CYCLE_OK;
 
             case SHL_VX_VY:
-                x = Instruction.getX(arguments);
-                leftShiftVx(x);
-                return;
+                x = Instruction.getX(instruction);
+                leftShiftVx(x, x);
+                return CYCLE_OK;
+
+            case SHL_VX_FROM_VY:
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
+                leftShiftVx(x, y);
+                return CYCLE_OK;
 
             case SNE_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
                 skipIfVxVyNotEqual(x, y);
-                return;
+                return CYCLE_OK;
 
             case LD_I_ADDR:
-                nnnn = Instruction.getNnnn(arguments);
+                nnnn = Instruction.getNnnn(instruction);
                 setIToNnnn(nnnn);
-                return;
+                return CYCLE_OK;
 
             case JP_V0_ADDR:
-                nnnn = Instruction.getNnnn(arguments);
+                nnnn = Instruction.getNnnn(instruction);
                 jumpToNnnnPlusV0(nnnn);
-                return;
+                return CYCLE_OK;
 
             case RND_VX:
-                x = Instruction.getX(arguments);
-                kk = Instruction.getKk(arguments);
+                x = Instruction.getX(instruction);
+                kk = Instruction.getKk(instruction);
                 randomByteAndKk(x, kk);
-                return;
+                return CYCLE_OK;
 
             case DRW_VX_VY:
-                x = Instruction.getX(arguments);
-                y = Instruction.getY(arguments);
-                n = Instruction.getN(arguments);
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
+                n = Instruction.getN(instruction);
                 displayOnScreen(x, y , n);
-                return;
+                return CYCLE_OK;
+
+            case DRW_VX_VY_CLIP:
+                x = Instruction.getX(instruction);
+                y = Instruction.getY(instruction);
+                n = Instruction.getN(instruction);
+                displayClippedOnScreen(x, y, n);
+                return CYCLE_OK;
 
             case SKP_VX:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
                 skipIfKeyVxPressed(x);
-                return;
+                return CYCLE_OK;
 
             case SKNP_VX:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
                 skipIfKeyVxNotPressed(x);
-                return;
+                return CYCLE_OK;
 
             case LD_VX_DT:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
                 setVxToDT(x);
-                return;
+                return CYCLE_OK;
 
             case LD_VX_K:
-                x = Instruction.getX(arguments);
-                setVxToKeyInput(x);
-                return;
+                x = Instruction.getX(instruction);
+                waitForKeyInVx(x);
+                return CYCLE_OK;
 
             case LD_DT_VX:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
                 setDTtoVx(x);
-                return;
+                return CYCLE_OK;
 
             case LD_ST_VX:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
                 setSTtoVx(x);
-                return;
+                return CYCLE_OK;
 
             case ADD_I_VX:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
                 addIVx(x);
-                return;
+                return CYCLE_OK;
 
             case LD_F_VX:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
                 setISpriteVx(x);
-                return;
+                return CYCLE_OK;
 
             case LD_B_VX:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
                 storeVxBCDRepresentation(x);
-                return;
+                return CYCLE_OK;
 
             case LD_I_VX:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
+                storeRegisterV0ToVx(x);
+                return CYCLE_OK;
+
+            case LD_I_VX_TO_LAST:
+                x = Instruction.getX(instruction);
+                storeRegisterV0ToVx(x);
+                advanceI(x);
+                return CYCLE_OK;
+
+            case LD_I_VX_PAST_LAST:
+                x = Instruction.getX(instruction);
                 storeRegisterV0ToVx(x);
-                return;
+                advanceI(x + 1);
+                return CYCLE_OK;
 
             case LD_VX_I:
-                x = Instruction.getX(arguments);
+                x = Instruction.getX(instruction);
+                readToRegisterV0ToVx(x);
+                return CYCLE_OK;
+
+            case LD_VX_I_TO_LAST:
+                x = Instruction.getX(instruction);
                 readToRegisterV0ToVx(x);
-                return;
+                advanceI(x);
+                return CYCLE_OK;
+
+            case LD_VX_I_PAST_LAST:
+                x = Instruction.getX(instruction);
+                readToRegisterV0ToVx(x);
+                advanceI(x + 1);
+                return CYCLE_OK;
+
+            case LD_HF_VX:
+                x = Instruction.getX(instruction);
+                setIBigSpriteVx(x);
+                return CYCLE_OK;
+
+            case LD_R_VX:
+                // The flags are not compared by the idle loop detector, a loop saving to them is never idle
+                sideEffects++;
+                x = Instruction.getX(instruction);
+                System.arraycopy(V, 0, state, MachineState.RPL, x + 1);
+                return CYCLE_OK;
+
+            case LD_VX_R:
+                x = Instruction.getX(instruction);
+                System.arraycopy(state, MachineState.RPL, V, 0, x + 1);
+                return CYCLE_OK;
 
             default:
-                return;
+                return CYCLE_OK;
 
         }
     }
@@ -380,9 +784,13 @@ public class ProcessingUnit  {
         memory.setPC(nnnn);
     }
 
-    void goToNnnn(short nnnn) throws Exception {
-        stack.push(memory.getPC());
+    boolean goToNnnn(short nnnn) {
+        if (!stack.push(memory.getPC())) {
+            return false;
+        }
+
         memory.setPC(nnnn);
+        return true;
     }
 
     void skipIfVxKKEqual(byte x, byte kk) {
@@ -466,9 +874,10 @@ public class ProcessingUnit  {
         V[x] = diff;
     }
 
-    void rightShiftVx(byte x) {
-        V[0xf] = (byte) (V[x]& 0x01);
-        V[x] = (byte) (byteToIntValue(V[x]) >>> 1);
+    // Vx or Vy depending on the quirk profile, the source is read again after VF got written as the flag may be it
+    void rightShiftVx(byte x, byte source) {
+        V[0xf] = (byte) (V[source]& 0x01);
+        V[x] = (byte) (byteToIntValue(V[source]) >>> 1);
     }
 
     void subVyVx(byte x, byte y) {
@@ -486,8 +895,8 @@ public class ProcessingUnit  {
         V[x] = diff;
     }
 
-    void leftShiftVx(byte x) {
-        byte mostSignificant = (byte) (V[x] & 0x80);
+    void leftShiftVx(byte x, byte source) {
+        byte mostSignificant = (byte) (V[source] & 0x80);
 
         if (mostSignificant != 0) {
             V[0xf] = (byte) 1;
@@ -495,7 +904,7 @@ public class ProcessingUnit  {
             V[0xf] = (byte) 0;
         }
 
-        V[x] = (byte) (byteToIntValue(V[x]) << 1);
+        V[x] = (byte) (byteToIntValue(V[source]) << 1);
     }
 
     void skipIfVxVyNotEqual(byte x, byte y) {
@@ -508,7 +917,7 @@ public class ProcessingUnit  {
     }
 
     void setIToNnnn(short nnnn) {
-        I = nnnn;
+        setI(nnnn);
     }
 
     void jumpToNnnnPlusV0(short nnnn) {
@@ -516,22 +925,49 @@ public class ProcessingUnit  {
     }
 
     void randomByteAndKk(byte x, byte kk) {
+        sideEffects++;
         byte rand = (byte) random.nextInt(256);
         V[x] = (byte) (rand & kk);
     }
 
     void displayOnScreen(byte x, byte y, byte n) {
+        drawSprite(x, y, n, false);
+    }
+
+    void displayClippedOnScreen(byte x, byte y, byte n) {
+        drawSprite(x, y, n, true);
+    }
+
+    private void drawSprite(byte x, byte y, byte n, boolean clip) {
+        sideEffects++;
         int byteDislayed = 0;
         int nValue = shortToIntValue(n);
-        int memoryStartValue = shortToIntValue(I);
-
+        int memoryStartValue = shortToIntValue(getI());
+
+        frameBuffer.beginSprite();
+        // DXY0 draws a 16x16 SUPER-CHIP sprite, two bytes per row, in low resolution as well like Octo does
+        if (nValue == 0) {
+            for (int row = 0; row < 16; row++) {
+                int address = memoryStartValue + row * 2;
+                short data = (short) ((memory.getByte(address) & 0xff) << 8 | (memory.getByte(address + 1) & 0xff));
+                if (clip) {
+                    frameBuffer.displayWideClipped(V[x], V[y], data, row);
+                } else {
+                    frameBuffer.displayWide(V[x], V[y], data, row);
+                }
+            }
+        }
         while (byteDislayed < nValue) {
             byte currentByte = memory.getByte(memoryStartValue + byteDislayed);
-            screen.display(V[x], V[y], currentByte, byteDislayed);
+            if (clip) {
+                frameBuffer.displayClipped(V[x], V[y], currentByte, byteDislayed);
+            } else {
+                frameBuffer.display(V[x], V[y], currentByte, byteDislayed);
+            }
             byteDislayed++;
         }
 
-        V[0xf] = screen.erasedPrevious() ? (byte) 1 : (byte) 0;
+        V[0xf] = frameBuffer.collisionResult();
     }
 
     void skipIfKeyVxPressed(byte x) {
@@ -547,27 +983,32 @@ public class ProcessingUnit  {
     }
 
     void setVxToDT(byte x) {
-        V[x] = DT;
+        V[x] = getDT();
     }
 
-    void setVxToKeyInput(byte x) throws InterruptedException {
-        V[x] = keyboard.waitForInput();
+    void waitForKeyInVx(byte x) {
+        keyboard.startKeyWait();
+        state[MachineState.KEY_WAIT] = x;
     }
 
     void setDTtoVx(byte x) {
-        DT = V[x];
+        setDT(V[x]);
     }
 
     void setSTtoVx(byte x) {
-        ST = V[x];
+        setST(V[x]);
     }
 
     void addIVx(byte x) {
-        I = (short) (shortToIntValue(I) + byteToIntValue(V[x]));
+        setI((short) (shortToIntValue(getI()) + byteToIntValue(V[x])));
     }
 
     void setISpriteVx(byte x) {
-        I = (short) (byteToIntValue(V[x]) * Memory.SPRITE_SIZE);
+        setI((short) (byteToIntValue(V[x]) * Memory.SPRITE_SIZE));
+    }
+
+    void setIBigSpriteVx(byte x) {
+        setI((short) (Memory.BIG_SPRITES_START + byteToIntValue(V[x]) * Memory.BIG_SPRITE_SIZE));
     }
 
     void storeVxBCDRepresentation(byte x) {
@@ -580,7 +1021,7 @@ public class ProcessingUnit  {
 
         for (int i = 2; i >= 0 & vXValue > 0; i--) {
             int digit = vXValue / power;
-            memory.setByte(shortToIntValue(I) + (2 - i), (byte) digit);
+            memory.setByte(shortToIntValue(getI()) + (2 - i), (byte) digit);
             vXValue -= digit * power;
             power /= 10;
         }
@@ -589,7 +1030,7 @@ public class ProcessingUnit  {
     void storeRegisterV0ToVx(byte x) {
         int to = byteToIntValue(x);
 
-        int memoryStart = shortToIntValue(I);
+        int memoryStart = shortToIntValue(getI());
         for (int i = 0; i <= to; i++) {
             byte b = V[i];
             memory.setByte(memoryStart, b);
@@ -601,13 +1042,89 @@ public class ProcessingUnit  {
         int to = byteToIntValue(x);
 
         int register = 0;
-        int memoryStart = shortToIntValue(I);
+        int memoryStart = shortToIntValue(getI());
         while (register <= to) {
             V[register] = memory.getByte(memoryStart + register);
             register++;
         }
     }
 
+    // Where the quirk profile leaves I after FX55 and FX65
+    void advanceI(int n) {
+        setI((short) (shortToIntValue(getI()) + n));
+    }
+
+    // What compiled blocks reach of the machine beside the registers
+    private final class CompiledBlockContext implements BlockContext {
+
+        @Override
+        public void setPC(int address) {
+            memory.setPC((short) address);
+        }
+
+        @Override
+        public int getI() {
+            return shortToIntValue(ProcessingUnit.this.getI());
+        }
+
+        @Override
+        public void setI(int value) {
+            ProcessingUnit.this.setI((short) value);
+        }
+
+        @Override
+        public byte getDT() {
+            return ProcessingUnit.this.getDT();
+        }
+
+        @Override
+        public void setDT(byte value) {
+            ProcessingUnit.this.setDT(value);
+        }
+
+        @Override
+        public void setST(byte value) {
+            ProcessingUnit.this.setST(value);
+        }
+
+        @Override
+        public boolean isKeyPressed(byte key) {
+            return keyboard.isPressed(key);
+        }
+
+        @Override
+        public int randomByte() {
+            sideEffects++;
+            return random.nextInt(256);
+        }
+
+        @Override
+        public void draw(byte x, byte y, byte n) {
+            displayOnScreen(x, y, n);
+        }
+
+        @Override
+        public void drawClipped(byte x, byte y, byte n) {
+            displayClippedOnScreen(x, y, n);
+        }
+
+        @Override
+        public int execute(short opcode) {
+            lastInstruction = opcode;
+            Instruction instructionPattern = decode(opcode);
+            if (instructionPattern == null) {
+                return UNKNOWN_INSTRUCTION;
+            }
+
+            return ProcessingUnit.this.execute(opcode, instructionPattern);
+        }
+
+        @Override
+        public void retire(int instructions) {
+            instructionCount += instructions;
+        }
+    }
+
     int byteToIntValue(byte b) {
         return b & 0xff;
     }
@@ -0,0 +1,183 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Flat counters of what the guest code does, filled by the profiling instruction loop of the processing unit.
+// Counts are indexed by Instruction ordinal and by 12 bit address, times are split between DRW, ALU and other
+// instructions. Timing each instruction costs far more than most instructions themselves, the average cost of
+// reading the clock is measured up front and taken off the reported times.
+class Profiler {
+
+    private final static int ADDRESSES = Memory.MEMORY_SIZE;
+    private final static int TOP_ENTRIES = 16;
+    private final static Instruction[] INSTRUCTIONS = Instruction.values();
+
+    final static int DRAW = 0;
+    final static int ALU = 1;
+    final static int OTHER = 2;
+    private final static String[] CATEGORY_NAMES = {"DRW", "ALU", "Other"};
+    private final static int[] CATEGORIES = new int[INSTRUCTIONS.length];
+
+    static {
+        Arrays.fill(CATEGORIES, OTHER);
+        CATEGORIES[Instruction.DRW_VX_VY.ordinal()] = DRAW;
+        CATEGORIES[Instruction.DRW_VX_VY_CLIP.ordinal()] = DRAW;
+        for (Instruction instruction : new Instruction[]{Instruction.LD_VX, Instruction.ADD_VX, Instruction.LD_VX_VY,
+                Instruction.OR_VX_VY, Instruction.AND_VX_VY, Instruction.XOR_VX_VY, Instruction.ADD_VX_VY,
+                Instruction.SUB_VX_VY, Instruction.SHR_VX_VY, Instruction.SUBN_VX_VY, Instruction.SHL_VX_VY,
+                Instruction.SHR_VX_FROM_VY, Instruction.SHL_VX_FROM_VY}) {
+            CATEGORIES[instruction.ordinal()] = ALU;
+        }
+    }
+
+    private final long[] instructionCounts = new long[INSTRUCTIONS.length];
+    private final long[] addressCounts = new long[ADDRESSES];
+    // Targets of control transfers to the same or a lower address
+    private final long[] loopHeadCounts = new long[ADDRESSES];
+    private final long[] categoryNanos = new long[CATEGORY_NAMES.length];
+    private final long[] categoryCounts = new long[CATEGORY_NAMES.length];
+    private final long clockOverhead;
+    // Memory as the profiled code left it, for showing the instruction at each address
+    private final byte[] code = new byte[ADDRESSES];
+
+    Profiler() {
+        clockOverhead = measureClockOverhead();
+    }
+
+    void record(int address, Instruction instruction, int nextAddress, long nanos) {
+        int ordinal = instruction.ordinal();
+        instructionCounts[ordinal]++;
+        addressCounts[address & (ADDRESSES - 1)]++;
+        if (nextAddress <= address) {
+            loopHeadCounts[nextAddress & (ADDRESSES - 1)]++;
+        }
+        int category = CATEGORIES[ordinal];
+        categoryNanos[category] += nanos;
+        categoryCounts[category]++;
+    }
+
+    void captureCode(Memory memory) {
+        System.arraycopy(memory.getMemory(), 0, code, 0, ADDRESSES);
+    }
+
+    void clear() {
+        Arrays.fill(instructionCounts, 0);
+        Arrays.fill(addressCounts, 0);
+        Arrays.fill(loopHeadCounts, 0);
+        Arrays.fill(categoryNanos, 0);
+        Arrays.fill(categoryCounts, 0);
+    }
+
+    long getInstructionCount(Instruction instruction) {
+        return instructionCounts[instruction.ordinal()];
+    }
+
+    long getAddressCount(int address) {
+        return addressCounts[address];
+    }
+
+    long getLoopHeadCount(int address) {
+        return loopHeadCounts[address];
+    }
+
+    long getCategoryCount(int category) {
+        return categoryCounts[category];
+    }
+
+    long getTotal() {
+        long total = 0;
+        for (long count : instructionCounts) {
+            total += count;
+        }
+
+        return total;
+    }
+
+    void writeReport(Appendable out) throws IOException {
+        long total = getTotal();
+        out.append(String.format("%d instructions profiled%n", total));
+        if (total == 0) {
+            return;
+        }
+
+        out.append(String.format("%nTime by kind, clock overhead of %d ns per instruction removed%n", clockOverhead));
+        long allNanos = 0;
+        for (int category = 0; category < CATEGORY_NAMES.length; category++) {
+            allNanos += correctedNanos(category);
+        }
+        for (int category = 0; category < CATEGORY_NAMES.length; category++) {
+            long nanos = correctedNanos(category);
+            out.append(String.format("%-6s %12d instructions %6.2f%% %12d us %6.2f%% %8.1f ns each%n",
+                    CATEGORY_NAMES[category], categoryCounts[category], percent(categoryCounts[category], total),
+                    nanos / 1_000, percent(nanos, allNanos),
+                    categoryCounts[category] == 0 ? 0.0 : (double) nanos / categoryCounts[category]));
+        }
+
+        out.append(String.format("%nInstructions%n"));
+        for (int ordinal : top(instructionCounts, INSTRUCTIONS.length)) {
+            out.append(String.format("%-12s %12d %6.2f%%%n", INSTRUCTIONS[ordinal], instructionCounts[ordinal],
+                    percent(instructionCounts[ordinal], total)));
+        }
+
+        out.append(String.format("%nHottest addresses%n"));
+        for (int address : top(addressCounts, TOP_ENTRIES)) {
+            short opcode = opcodeAt(address);
+            out.append(String.format("%03X %04X %-12s %12d %6.2f%%%n", address, opcode & 0xffff,
+                    Instruction.getMatched(opcode), addressCounts[address],
+                    percent(addressCounts[address], total)));
+        }
+
+        out.append(String.format("%nHottest loop heads%n"));
+        for (int address : top(loopHeadCounts, TOP_ENTRIES)) {
+            out.append(String.format("%03X %12d iterations%n", address, loopHeadCounts[address]));
+        }
+    }
+
+    private long correctedNanos(int category) {
+        return Math.max(0, categoryNanos[category] - clockOverhead * categoryCounts[category]);
+    }
+
+    private short opcodeAt(int address) {
+        return (short) ((code[address] & 0xff) << 8 | (code[(address + 1) & (ADDRESSES - 1)] & 0xff));
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0.0 : part * 100.0 / whole;
+    }
+
+    // Indexes of the highest non zero counts, highest first
+    private static int[] top(long[] counts, int limit) {
+        int[] indexes = new int[limit];
+        int size = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            int position = size < limit ? size++ : limit;
+            while (position > 0 && counts[indexes[position - 1]] < counts[i]) {
+                if (position < limit) {
+                    indexes[position] = indexes[position - 1];
+                }
+                position--;
+            }
+            if (position < limit) {
+                indexes[position] = i;
+            }
+        }
+
+        return Arrays.copyOf(indexes, size);
+    }
+
+    private static long measureClockOverhead() {
+        final int samples = 10_000;
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < samples; i++) {
+            sink += System.nanoTime();
+        }
+        long elapsed = System.nanoTime() - start;
+        // Keeps the loop from being optimized away
+        return sink == 0 ? 0 : elapsed / samples;
+    }
+}
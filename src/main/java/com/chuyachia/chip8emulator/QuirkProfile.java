@@ -0,0 +1,138 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// Behaviours ROMs written for different interpreters disagree on. A profile picks, for each instruction a quirk
+// affects, the variant of it that behaves its way, and decodes opcodes through a table holding those variants. The
+// engines then run a handler written for one behaviour with nothing left to look up: the interpreter and the block
+// cache get the variant when they decode an instruction, the JIT when it compiles the block it is part of.
+public enum QuirkProfile {
+
+    // The original interpreter: shifts take Vy, FX55/FX65 leave I past the last register, sprites are cut at the edges
+    COSMAC_VIP(ShiftSource.VY, IndexAdvance.PAST_LAST, SpriteEdge.CLIP),
+    // HP48 interpreter: shifts take Vx, FX55/FX65 leave I on the last register, sprites are cut at the edges
+    CHIP48(ShiftSource.VX, IndexAdvance.TO_LAST, SpriteEdge.CLIP),
+    // SUPER-CHIP 1.1: shifts take Vx, FX55/FX65 leave I alone, sprites are cut at the edges
+    SCHIP(ShiftSource.VX, IndexAdvance.NONE, SpriteEdge.CLIP),
+    // What this emulator always did: shifts take Vx, FX55/FX65 leave I alone, sprites wrap around
+    MODERN(ShiftSource.VX, IndexAdvance.NONE, SpriteEdge.WRAP);
+
+    // CRC32 of known ROMs and the profile they need, anything else runs on MODERN
+    private final static String TABLE = "quirks.txt";
+    private final static Map<Integer, QuirkProfile> KNOWN_ROMS = readTable();
+
+    final ShiftSource shiftSource;
+    final IndexAdvance indexAdvance;
+    final SpriteEdge spriteEdge;
+    // Instruction.getMatched with the variants of the profile in place of the instructions they stand for
+    final Instruction[] decodeTable;
+
+    QuirkProfile(ShiftSource shiftSource, IndexAdvance indexAdvance, SpriteEdge spriteEdge) {
+        this.shiftSource = shiftSource;
+        this.indexAdvance = indexAdvance;
+        this.spriteEdge = spriteEdge;
+        this.decodeTable = new Instruction[Instruction.OPCODES];
+        for (int opcode = 0; opcode < decodeTable.length; opcode++) {
+            decodeTable[opcode] = variant(Instruction.getMatched((short) opcode));
+        }
+    }
+
+    Instruction variant(Instruction instruction) {
+        if (instruction == null) {
+            return null;
+        }
+
+        switch (instruction) {
+            case SHR_VX_VY:
+                return shiftSource.shiftRight;
+            case SHL_VX_VY:
+                return shiftSource.shiftLeft;
+            case LD_I_VX:
+                return indexAdvance.store;
+            case LD_VX_I:
+                return indexAdvance.load;
+            case DRW_VX_VY:
+                return spriteEdge.draw;
+            default:
+                return instruction;
+        }
+    }
+
+    static QuirkProfile forRom(byte[] rom) {
+        return KNOWN_ROMS.getOrDefault(SessionLog.romCrc(rom), MODERN);
+    }
+
+    // Lines of "<CRC32 in hex> <profile> <title>", # starts a comment
+    private static Map<Integer, QuirkProfile> readTable() {
+        Map<Integer, QuirkProfile> profiles = new HashMap<>();
+        InputStream in = QuirkProfile.class.getResourceAsStream(TABLE);
+        if (in == null) {
+            return profiles;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+", 3);
+                profiles.put(Integer.parseUnsignedInt(fields[0], 16), valueOf(fields[1]));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return profiles;
+    }
+
+    // Register 8XY6 and 8XYE shift into Vx
+    enum ShiftSource {
+        VX(Instruction.SHR_VX_VY, Instruction.SHL_VX_VY),
+        VY(Instruction.SHR_VX_FROM_VY, Instruction.SHL_VX_FROM_VY);
+
+        final Instruction shiftRight;
+        final Instruction shiftLeft;
+
+        ShiftSource(Instruction shiftRight, Instruction shiftLeft) {
+            this.shiftRight = shiftRight;
+            this.shiftLeft = shiftLeft;
+        }
+    }
+
+    // I after FX55 and FX65 went through V0 to Vx
+    enum IndexAdvance {
+        NONE(Instruction.LD_I_VX, Instruction.LD_VX_I),
+        TO_LAST(Instruction.LD_I_VX_TO_LAST, Instruction.LD_VX_I_TO_LAST),
+        PAST_LAST(Instruction.LD_I_VX_PAST_LAST, Instruction.LD_VX_I_PAST_LAST);
+
+        final Instruction store;
+        final Instruction load;
+
+        IndexAdvance(Instruction store, Instruction load) {
+            this.store = store;
+            this.load = load;
+        }
+    }
+
+    // Sprite rows and pixels beyond the screen edges either come back on the other side or are not drawn, the
+    // position a sprite starts at always wraps
+    enum SpriteEdge {
+        WRAP(Instruction.DRW_VX_VY),
+        CLIP(Instruction.DRW_VX_VY_CLIP);
+
+        final Instruction draw;
+
+        SpriteEdge(Instruction draw) {
+            this.draw = draw;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.chuyachia.chip8emulator;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// Keeps the last frames as undo records in a circular byte arena allocated once. A record holds the registers of the
+// previous frame and the previous content of the memory pages and screen rows that changed during the frame, so a
+// quiet frame costs a few dozen bytes whatever the clock rate and stepping back only copies what changed.
+// The oldest records are dropped when the arena or the frame limit is full.
+class RewindBuffer {
+
+    final static int DEFAULT_CAPACITY = 16 * 1024 * 1024;
+    // Ten minutes at 60 frames per second
+    final static int DEFAULT_MAX_FRAMES = 10 * 60 * 60;
+
+    // Everything in the machine state before the memory, then the collision flag and resolution after the rows
+    private final static int STATE_SIZE = MachineState.MEMORY + 1 + 1;
+    final static int MAX_RECORD_SIZE = STATE_SIZE
+            + 1 + Memory.PAGE_NUMBER * (1 + Memory.PAGE_SIZE)
+            + 1 + FrameBuffer.WORDS * (1 + 8);
+
+    private final ProcessingUnit processingUnit;
+    private final Memory memory;
+    private final byte[] state;
+    private final ByteBuffer arena;
+    // Start offsets of the records in the arena, a ring ordered from oldest to newest
+    private final int[] recordStarts;
+    private int oldest;
+    private int count;
+    private int writePosition;
+
+    // Machine state at the last capture, the base the newest record applies to
+    private final byte[] shadow = MachineState.allocate();
+    private final int[] shadowPageVersions = new int[Memory.PAGE_NUMBER];
+    private boolean captured;
+
+    RewindBuffer(ProcessingUnit processingUnit, Memory memory) {
+        this(processingUnit, memory, DEFAULT_CAPACITY, DEFAULT_MAX_FRAMES);
+    }
+
+    RewindBuffer(ProcessingUnit processingUnit, Memory memory, int capacity, int maxFrames) {
+        if (capacity < MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException(String.format("Rewind buffer needs at least %d bytes", MAX_RECORD_SIZE));
+        }
+        this.processingUnit = processingUnit;
+        this.memory = memory;
+        this.state = memory.getState();
+        this.arena = ByteBuffer.allocate(capacity);
+        this.recordStarts = new int[maxFrames];
+    }
+
+    void clear() {
+        oldest = 0;
+        count = 0;
+        writePosition = 0;
+        captured = false;
+    }
+
+    int getFrames() {
+        return count;
+    }
+
+    // Called at the end of every frame
+    void capture() {
+        if (!captured) {
+            processingUnit.copyStateTo(shadow);
+            for (int page = 0; page < Memory.PAGE_NUMBER; page++) {
+                shadowPageVersions[page] = memory.getPageVersion(page);
+            }
+            captured = true;
+            return;
+        }
+
+        reserve();
+        processingUnit.storeState();
+        int start = writePosition;
+        position(start);
+        arena.put(shadow, 0, MachineState.MEMORY);
+        arena.put(shadow[MachineState.COLLISION]);
+        arena.put(shadow[MachineState.HIRES]);
+        System.arraycopy(state, 0, shadow, 0, MachineState.MEMORY);
+        shadow[MachineState.COLLISION] = state[MachineState.COLLISION];
+        shadow[MachineState.HIRES] = state[MachineState.HIRES];
+
+        int pageCountPosition = arena.position();
+        arena.put((byte) 0);
+        int pages = 0;
+        for (int page = 0; page < Memory.PAGE_NUMBER; page++) {
+            int version = memory.getPageVersion(page);
+            if (version == shadowPageVersions[page]) {
+                continue;
+            }
+            shadowPageVersions[page] = version;
+            int offset = MachineState.MEMORY + page * Memory.PAGE_SIZE;
+            if (MachineState.sameRange(state, offset, shadow, offset, Memory.PAGE_SIZE)) {
+                continue;
+            }
+            arena.put((byte) page);
+            arena.put(shadow, offset, Memory.PAGE_SIZE);
+            System.arraycopy(state, offset, shadow, offset, Memory.PAGE_SIZE);
+            pages++;
+        }
+        arena.put(pageCountPosition, (byte) pages);
+
+        int rowCountPosition = arena.position();
+        arena.put((byte) 0);
+        int changedRows = 0;
+        for (int row = 0; row < FrameBuffer.WORDS; row++) {
+            int offset = MachineState.ROWS + row * Long.BYTES;
+            long current = MachineState.getLong(state, offset);
+            long previous = MachineState.getLong(shadow, offset);
+            if (current != previous) {
+                arena.put((byte) row);
+                arena.putLong(previous);
+                MachineState.setLong(shadow, offset, current);
+                changedRows++;
+            }
+        }
+        arena.put(rowCountPosition, (byte) changedRows);
+
+        recordStarts[(oldest + count) % recordStarts.length] = start;
+        count++;
+        writePosition = arena.position();
+    }
+
+    // Puts the machine back to the frame before the last capture. Anything run since that capture is dropped too.
+    boolean stepBack() {
+        if (count == 0) {
+            return false;
+        }
+
+        count--;
+        int start = recordStarts[(oldest + count) % recordStarts.length];
+        position(start);
+        arena.get(shadow, 0, MachineState.MEMORY);
+        shadow[MachineState.COLLISION] = arena.get();
+        shadow[MachineState.HIRES] = arena.get();
+
+        int restoredPages = 0;
+        int pages = arena.get() & 0xff;
+        for (int i = 0; i < pages; i++) {
+            int page = arena.get() & 0xff;
+            arena.get(shadow, MachineState.MEMORY + page * Memory.PAGE_SIZE, Memory.PAGE_SIZE);
+            restoredPages |= 1 << page;
+        }
+
+        int changedRows = arena.get() & 0xff;
+        for (int i = 0; i < changedRows; i++) {
+            int row = arena.get() & 0xff;
+            MachineState.setLong(shadow, MachineState.ROWS + row * Long.BYTES, arena.getLong());
+        }
+        writePosition = start;
+
+        for (int page = 0; page < Memory.PAGE_NUMBER; page++) {
+            if ((restoredPages >>> page & 1) != 0 || memory.getPageVersion(page) != shadowPageVersions[page]) {
+                memory.restorePage(page, shadow);
+                shadowPageVersions[page] = memory.getPageVersion(page);
+            }
+        }
+        processingUnit.restoreRegistersAndFrame(shadow);
+        return true;
+    }
+
+    // Through Buffer, whose position(int) a Java 8 runtime has, ByteBuffer only overrides it from Java 9 on
+    private void position(int position) {
+        ((Buffer) arena).position(position);
+    }
+
+    // Makes room for one record at the write position, records ahead of it in the arena are the oldest
+    private void reserve() {
+        if (writePosition + MAX_RECORD_SIZE > arena.capacity()) {
+            while (count > 0 && recordStarts[oldest] >= writePosition) {
+                dropOldest();
+            }
+            writePosition = 0;
+        }
+
+        while (count > 0 && (count == recordStarts.length
+                || recordStarts[oldest] >= writePosition && recordStarts[oldest] < writePosition + MAX_RECORD_SIZE)) {
+            dropOldest();
+        }
+    }
+
+    private void dropOldest() {
+        oldest = (oldest + 1) % recordStarts.length;
+        count--;
+    }
+}
@@ -0,0 +1,121 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Fixed layout binary snapshot of the machine, big endian:
+// magic, version, the machine state as laid out in MachineState (V0-VF, I, DT, ST, PC, stack pointer and levels, key
+// wait register, RPL flags, memory, frame rows, collision, high resolution) and a CRC32 of everything before it.
+// Version 1 saves, written before SUPER-CHIP, are read into the current layout.
+class SaveState {
+
+    final static int MAGIC = 0x43385356;
+    final static short VERSION = 2;
+
+    private final static int HEADER_SIZE = 4 + 2;
+    private final static int CRC_SIZE = 4;
+    final static int SIZE = HEADER_SIZE + MachineState.SIZE + CRC_SIZE;
+    private final static int CRC_OFFSET = SIZE - CRC_SIZE;
+
+    // Without RPL flags, with the low resolution frame rows only and no resolution flag
+    private final static short VERSION_1 = 1;
+    private final static int VERSION_1_SIZE = HEADER_SIZE + MachineState.RPL + Memory.MEMORY_SIZE
+            + FrameBuffer.HEIGHT * Long.BYTES + 1 + CRC_SIZE;
+
+    // Fills the buffer with the state of the machine, the checksum is left to write
+    static void capture(ProcessingUnit processingUnit, ByteBuffer buffer) {
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        processingUnit.saveTo(buffer);
+    }
+
+    static void restore(ProcessingUnit processingUnit, ByteBuffer buffer) {
+        buffer.position(HEADER_SIZE);
+        processingUnit.restoreFrom(buffer);
+    }
+
+    static void write(ByteBuffer buffer, Path path) throws IOException {
+        buffer.putInt(CRC_OFFSET, checksum(buffer));
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // Returns null when the file is not a save state at all, throws when it is one but cannot be used
+    static ByteBuffer read(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                return null;
+            }
+            int size;
+            short version = header.getShort(4);
+            if (version == VERSION) {
+                size = SIZE;
+            } else if (version == VERSION_1) {
+                size = VERSION_1_SIZE;
+            } else {
+                throw new IOException(String.format("Unsupported save state version %d", version));
+            }
+            if (channel.size() != size) {
+                throw new IOException(String.format("Save state is not %d bytes long", size));
+            }
+
+            buffer = ByteBuffer.allocate(size);
+            buffer.put(header.array());
+            readFully(channel, buffer);
+            if (buffer.hasRemaining()) {
+                throw new IOException(String.format("Save state is not %d bytes long", size));
+            }
+        }
+
+        if (buffer.getInt(buffer.capacity() - CRC_SIZE) != checksum(buffer)) {
+            throw new IOException("Save state is corrupted");
+        }
+
+        return buffer.getShort(4) == VERSION_1 ? upgrade(buffer) : buffer;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int read = 0;
+        while (read >= 0 && buffer.hasRemaining()) {
+            read = channel.read(buffer);
+        }
+    }
+
+    // The registers up to the key wait register and the memory keep their place, the RPL flags stay cleared, the 32
+    // rows are the first words of the frame and the machine is in low resolution
+    private static ByteBuffer upgrade(ByteBuffer version1) {
+        byte[] old = version1.array();
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put(old, HEADER_SIZE, MachineState.RPL);
+        int memory = HEADER_SIZE + MachineState.RPL;
+        buffer.position(HEADER_SIZE + MachineState.MEMORY);
+        buffer.put(old, memory, Memory.MEMORY_SIZE + FrameBuffer.HEIGHT * Long.BYTES);
+        buffer.position(HEADER_SIZE + MachineState.COLLISION);
+        buffer.put(old[memory + Memory.MEMORY_SIZE + FrameBuffer.HEIGHT * Long.BYTES]);
+        buffer.putInt(CRC_OFFSET, checksum(buffer));
+        return buffer;
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        ByteBuffer content = buffer.duplicate();
+        content.position(0).limit(buffer.capacity() - CRC_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,55 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Snapshots are taken on the emulation thread into a buffer allocated once, choosing the file and writing it
+// happens on a background thread while the emulation goes on
+class SaveStateWriter {
+
+    private final Frontend frontend;
+    private final ByteBuffer buffer = ByteBuffer.allocate(SaveState.SIZE);
+    // Set from the capture until the buffer got written or dropped
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final Runnable writeTask = this::write;
+    private ExecutorService ioThread;
+
+    SaveStateWriter(Frontend frontend) {
+        this.frontend = frontend;
+    }
+
+    // Called by the emulation thread in between instructions, returns false while the previous save is not done
+    boolean save(ProcessingUnit processingUnit) {
+        if (!busy.compareAndSet(false, true)) {
+            return false;
+        }
+
+        SaveState.capture(processingUnit, buffer);
+        if (ioThread == null) {
+            ioThread = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "chip8-save");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        ioThread.execute(writeTask);
+        return true;
+    }
+
+    private void write() {
+        try {
+            File savedFile = frontend.chooseSaveFile(new File(String.format("chip8_%d.sav", System.currentTimeMillis())));
+            if (savedFile != null) {
+                SaveState.write(buffer, savedFile.toPath());
+            }
+        } catch (IOException e) {
+            frontend.saveFailed();
+        } finally {
+            busy.set(false);
+        }
+    }
+}
@@ -2,48 +2,39 @@ package com.chuyachia.chip8emulator;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.Arrays;
 
-public class Screen extends JPanel {
+public class Screen extends JPanel implements Frontend {
 
     public static final String PANEL_NAME = "Chip8Screen";
-    public static final int WIDTH = 64;
-    public static final int HEIGHT = 32;
-    public static final int BYTE_SIZE = 8;
-    private final byte[][] pixels;
+    private static final int PIXEL_ON = Color.GREEN.getRGB();
+    private static final int PIXEL_OFF = Color.BLACK.getRGB();
+    private final FrameBuffer frameBuffer;
+    private final JFileChooser fileChooser = new JFileChooser();
+    // Image at display size, recreated when the scale factor or the resolution changes
+    private BufferedImage image;
+    private int[] raster;
+    private int imageScaleFactor;
+    private boolean imageHires;
+    // Size of a pixel in the image, high resolution pixels are half the size to keep the same window
+    private int pixelSize;
+    private int lineLength;
+    // Words as they were last written to the raster
+    private final long[] presentedRows;
     private int scaleFactor = 10;
-    private boolean collision;
-    private boolean repaintFlag;
+    // Null unless paints are timed
+    private FrameMetrics frameMetrics;
 
-    public Screen() {
-        this.pixels = new byte[HEIGHT][WIDTH / BYTE_SIZE];
-    }
-
-    public void display(byte x, byte y, byte data, int offset) {
-        int xValue = x & 0xff;
-        int yValue = y & 0xff;
-        collision = false;
-
-        int validYValue = (yValue + offset) % (HEIGHT);
-        for (int i = BYTE_SIZE - 1; i >= 0 && (data & 0xff) > 0; i--) {
-            int validXValue = (xValue + i) % (WIDTH);
-            updateBit(validXValue, validYValue, data);
-            data = (byte) ((data & 0xff) >>> 1);
-        }
-
-        repaintFlag = true;
-    }
-
-    public void clearDisplay() {
-        for (byte[] b : pixels) {
-            Arrays.fill(b, (byte) 0);
-        }
-    }
-
-    public void clear() {
-        clearDisplay();
-        collision = false;
-        repaintFlag = false;
+    public Screen(FrameBuffer frameBuffer) {
+        this.frameBuffer = frameBuffer;
+        presentedRows = new long[FrameBuffer.WORDS];
+        fileChooser.setDialogTitle("Save");
+        fileChooser.setApproveButtonText("Save");
     }
 
     public void backToEmulatorHome() {
@@ -52,70 +43,98 @@ public class Screen extends JPanel {
         cardLayout.show(parentContainer, Home.PANEL_NAME);
     }
 
-    public byte[][] getPixels() {
-        return pixels;
+    @Override
+    public void frameReady() {
+        repaint();
     }
 
-    public void setPixels(byte[][] values) {
-        for (int i = 0; i < values.length; i ++) {
-            byte[] row = values[i];
-            for (int j = 0; j < row.length; j++) {
-                this.pixels[i][j] = row[j];
-            }
+    @Override
+    public File chooseSaveFile(File suggested) {
+        AtomicReference<File> chosen = new AtomicReference<>();
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                fileChooser.setSelectedFile(suggested);
+                int userInteraction = fileChooser.showOpenDialog(this);
+                if (userInteraction == JFileChooser.APPROVE_OPTION) {
+                    chosen.set(fileChooser.getSelectedFile());
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            return null;
         }
-    }
-
-    public boolean getCollision() {
-        return collision;
-    }
 
-    public void setCollision(boolean collision) {
-        this.collision = collision;
+        return chosen.get();
     }
 
-    public void setRepaintFlag(boolean repaintFlag) {
-        this.repaintFlag = repaintFlag;
+    @Override
+    public void saveFailed() {
+        SwingUtilities.invokeLater(() ->
+                JOptionPane.showMessageDialog(this, "Something went wrong when saving current emulation state"));
     }
 
-    public boolean shouldRepaint() {
-        return repaintFlag;
+    @Override
+    public void emulationEnded() {
+        backToEmulatorHome();
     }
 
     @Override
     public Dimension getPreferredSize() {
-        return new Dimension(WIDTH * scaleFactor, HEIGHT * scaleFactor);
+        return new Dimension(FrameBuffer.WIDTH * scaleFactor, FrameBuffer.HEIGHT * scaleFactor);
     }
 
     @Override
     protected void paintComponent(Graphics graphics) {
+        long start = System.nanoTime();
         super.paintComponent(graphics);
 
-        graphics.setColor(Color.BLACK);
-        graphics.fillRect(0, 0, WIDTH * scaleFactor, HEIGHT * scaleFactor);
-
-        for (int i = 0; i < HEIGHT; i++) {
-            for (int j = 0; j < WIDTH / BYTE_SIZE; j++) {
-                byte b = pixels[i][j];
-                int bValue = b & 0xff;
-                for (int k = 0; k < BYTE_SIZE; k++) {
-                    if ((bValue >>> k) % 2 == 1) {
-                        graphics.setColor(Color.GREEN);
-                    } else {
-                        graphics.setColor(Color.BLACK);
-                    }
-                    int x = (j * BYTE_SIZE) + (BYTE_SIZE - k - 1);
-                    int y = i;
-                    graphics.fillRect(x * scaleFactor, y * scaleFactor, scaleFactor, scaleFactor);
-                }
+        int scale = scaleFactor;
+        long[] rows = frameBuffer.acquireFrame();
+        boolean hires = frameBuffer.isAcquiredFrameHires();
+        boolean rescaled = scale != imageScaleFactor || hires != imageHires || image == null;
+        if (rescaled) {
+            pixelSize = hires ? Math.max(1, scale / 2) : scale;
+            int width = hires ? FrameBuffer.HIRES_WIDTH : FrameBuffer.WIDTH;
+            int height = hires ? FrameBuffer.HIRES_HEIGHT : FrameBuffer.HEIGHT;
+            image = new BufferedImage(width * pixelSize, height * pixelSize, BufferedImage.TYPE_INT_RGB);
+            raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            lineLength = width * pixelSize;
+            imageScaleFactor = scale;
+            imageHires = hires;
+        }
+        // A low resolution row is one word, a high resolution row is two words side by side
+        int words = hires ? FrameBuffer.WORDS : FrameBuffer.HEIGHT;
+        int wordsPerRow = hires ? 2 : 1;
+        for (int i = 0; i < words; i++) {
+            long word = rows[i];
+            if (rescaled || word != presentedRows[i]) {
+                writeWord(i % wordsPerRow * Long.SIZE, i / wordsPerRow, word);
+                presentedRows[i] = word;
             }
         }
 
-        repaintFlag = false;
+        graphics.drawImage(image, 0, 0, null);
+        if (frameMetrics != null) {
+            frameMetrics.framePainted(System.nanoTime() - start);
+        }
     }
 
-
-    public boolean erasedPrevious() {
-        return collision;
+    // Writes the 64 pixels of the word starting at x on the first scan line of row y and copies them to the other scan
+    // lines of the scaled row
+    private void writeWord(int x, int y, long word) {
+        int scale = pixelSize;
+        int offset = y * scale * lineLength + x * scale;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            int start = offset + bit * scale;
+            Arrays.fill(raster, start, start + scale, word < 0 ? PIXEL_ON : PIXEL_OFF);
+            // Next pixel moves into the sign bit
+            word <<= 1;
+        }
+        int length = Long.SIZE * scale;
+        for (int line = 1; line < scale; line++) {
+            System.arraycopy(raster, offset, raster, offset + line * lineLength, length);
+        }
     }
 
     public int getScaleFactor() {
@@ -126,17 +145,7 @@ public class Screen extends JPanel {
         this.scaleFactor = value;
     }
 
-    private void updateBit(int x, int y, byte b) {
-        int xModulo = x % BYTE_SIZE;
-        int xCoord = x / BYTE_SIZE;
-        byte leastSignificantBit = (byte) ((b & 0xff) % 2);
-        byte update = (byte) ((leastSignificantBit & 0xff) << (BYTE_SIZE - 1 - xModulo));
-        byte updatedValue = (byte) ((pixels[y][xCoord] & 0xff) ^ (update & 0xff));
-        if (!collision && ((pixels[y][xCoord] & 0xff) & (update & 0xff)) != 0) {
-            collision = true;
-        }
-        pixels[y][xCoord] = updatedValue;
+    void setFrameMetrics(FrameMetrics frameMetrics) {
+        this.frameMetrics = frameMetrics;
     }
-
-
 }
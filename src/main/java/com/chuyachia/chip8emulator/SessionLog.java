@@ -0,0 +1,250 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Everything needed to run a session again from a freshly loaded game: the random seed, the clock rate, the quirk
+// profile, the changes of the latched keys and a hash of the frame buffer every second to check the replay against.
+// Written big endian: magic, version, seed, clock rate, ROM CRC32, quirk profile name in modified UTF-8, frame
+// count, then the key changes as frame and
+// instruction count deltas in variable length with the new keys, then the checkpoints as frame deltas with the hash.
+class SessionLog {
+
+    final static int MAGIC = 0x43385243;
+    // 2 hashes the frame buffer rows of both resolutions, 3 records the quirk profile
+    final static short VERSION = 3;
+    final static int CHECKPOINT_FRAMES = FrameScheduler.REFRESH_RATE;
+
+    private final long seed;
+    private final int clockRate;
+    private final int romCrc;
+    // The one the session ran with, which -Dchip8.quirks may have chosen instead of the ROM table
+    private final QuirkProfile quirkProfile;
+    private long frames;
+
+    private int eventCount;
+    private long[] eventFrames = new long[64];
+    // Instructions executed before the frame the keys changed on, checked on replay to catch a diverging run early
+    private long[] eventInstructions = new long[64];
+    private int[] eventKeys = new int[64];
+
+    private int checkpointCount;
+    private long[] checkpointFrames = new long[64];
+    private long[] checkpointHashes = new long[64];
+    private long lastHash;
+
+    SessionLog(long seed, int clockRate, int romCrc, QuirkProfile quirkProfile) {
+        this.seed = seed;
+        this.clockRate = clockRate;
+        this.romCrc = romCrc;
+        this.quirkProfile = quirkProfile;
+    }
+
+    static int romCrc(byte[] rom) {
+        CRC32 crc = new CRC32();
+        crc.update(rom, 0, rom.length);
+        return (int) crc.getValue();
+    }
+
+    static long hash(FrameBuffer frameBuffer) {
+        // FNV-1a over whole rows
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < FrameBuffer.WORDS; i++) {
+            hash = (hash ^ frameBuffer.getRow(i)) * 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    void keysChanged(long instructionCount, int keys) {
+        addEvent(frames, instructionCount, keys);
+    }
+
+    private void addEvent(long frame, long instructionCount, int keys) {
+        if (eventCount == eventKeys.length) {
+            eventFrames = Arrays.copyOf(eventFrames, eventCount * 2);
+            eventInstructions = Arrays.copyOf(eventInstructions, eventCount * 2);
+            eventKeys = Arrays.copyOf(eventKeys, eventCount * 2);
+        }
+        eventFrames[eventCount] = frame;
+        eventInstructions[eventCount] = instructionCount;
+        eventKeys[eventCount] = keys;
+        eventCount++;
+    }
+
+    void frameEnded(FrameBuffer frameBuffer) {
+        frames++;
+        lastHash = hash(frameBuffer);
+        if (frames % CHECKPOINT_FRAMES == 0) {
+            addCheckpoint(frames, lastHash);
+        }
+    }
+
+    private void addCheckpoint(long frame, long hash) {
+        if (checkpointCount == checkpointHashes.length) {
+            checkpointFrames = Arrays.copyOf(checkpointFrames, checkpointCount * 2);
+            checkpointHashes = Arrays.copyOf(checkpointHashes, checkpointCount * 2);
+        }
+        checkpointFrames[checkpointCount] = frame;
+        checkpointHashes[checkpointCount] = hash;
+        checkpointCount++;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    int getClockRate() {
+        return clockRate;
+    }
+
+    int getRomCrc() {
+        return romCrc;
+    }
+
+    QuirkProfile getQuirkProfile() {
+        return quirkProfile;
+    }
+
+    long getFrames() {
+        return frames;
+    }
+
+    int getEventCount() {
+        return eventCount;
+    }
+
+    long getEventFrame(int event) {
+        return eventFrames[event];
+    }
+
+    long getEventInstructions(int event) {
+        return eventInstructions[event];
+    }
+
+    int getEventKeys(int event) {
+        return eventKeys[event];
+    }
+
+    int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    long getCheckpointFrame(int checkpoint) {
+        return checkpointFrames[checkpoint];
+    }
+
+    long getCheckpointHash(int checkpoint) {
+        return checkpointHashes[checkpoint];
+    }
+
+    void write(Path path) throws IOException {
+        // The last frame is always checked, even when it does not fall on a whole second
+        if (frames > 0 && (checkpointCount == 0 || checkpointFrames[checkpointCount - 1] != frames)) {
+            addCheckpoint(frames, lastHash);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(seed);
+            out.writeInt(clockRate);
+            out.writeInt(romCrc);
+            out.writeUTF(quirkProfile.name());
+            writeVarLong(out, frames);
+
+            writeVarLong(out, eventCount);
+            long previousFrame = 0;
+            long previousInstructions = 0;
+            for (int i = 0; i < eventCount; i++) {
+                writeVarLong(out, eventFrames[i] - previousFrame);
+                writeVarLong(out, eventInstructions[i] - previousInstructions);
+                out.writeInt(eventKeys[i]);
+                previousFrame = eventFrames[i];
+                previousInstructions = eventInstructions[i];
+            }
+
+            writeVarLong(out, checkpointCount);
+            previousFrame = 0;
+            for (int i = 0; i < checkpointCount; i++) {
+                writeVarLong(out, checkpointFrames[i] - previousFrame);
+                out.writeLong(checkpointHashes[i]);
+                previousFrame = checkpointFrames[i];
+            }
+        }
+    }
+
+    static SessionLog read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(String.format("%s is not a recorded session", path));
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException(String.format("Unsupported session version %d", version));
+            }
+
+            long seed = in.readLong();
+            int clockRate = in.readInt();
+            int romCrc = in.readInt();
+            SessionLog log = new SessionLog(seed, clockRate, romCrc, readQuirkProfile(in));
+            log.frames = readVarLong(in);
+
+            long events = readVarLong(in);
+            long frame = 0;
+            long instructions = 0;
+            for (long i = 0; i < events; i++) {
+                frame += readVarLong(in);
+                instructions += readVarLong(in);
+                log.addEvent(frame, instructions, in.readInt());
+            }
+
+            long checkpoints = readVarLong(in);
+            frame = 0;
+            for (long i = 0; i < checkpoints; i++) {
+                frame += readVarLong(in);
+                log.addCheckpoint(frame, in.readLong());
+            }
+
+            return log;
+        }
+    }
+
+    private static QuirkProfile readQuirkProfile(DataInputStream in) throws IOException {
+        String name = in.readUTF();
+        try {
+            return QuirkProfile.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(String.format("Unknown quirk profile %s in recorded session", name));
+        }
+    }
+
+    // Seven bits per byte, low bits first, the high bit tells whether another byte follows
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed length in recorded session");
+    }
+}
@@ -0,0 +1,93 @@
+package com.chuyachia.chip8emulator;
+
+// Runs a recorded session again on a headless machine as fast as it goes, feeding the logged keys back at the frames
+// they changed on and checking the frame buffer at every checkpoint
+class SessionReplay {
+
+    final static int REPLAY_OK = 0;
+    final static int ROM_MISMATCH = 1;
+    final static int INPUT_MISMATCH = 2;
+    final static int FRAME_MISMATCH = 3;
+    final static int CYCLE_FAILED = 4;
+
+    private final SessionLog log;
+    private final BatchRunner.HeadlessMachine machine;
+    private final ProcessingUnit processingUnit;
+    private final byte[] rom;
+    // Where the replay got to, or stopped
+    private long frame;
+    private int event;
+    private int checkpoint;
+
+    SessionReplay(SessionLog log, byte[] rom) {
+        this.log = log;
+        this.rom = rom;
+        machine = new BatchRunner.HeadlessMachine(rom, log.getQuirkProfile(), log.getClockRate(), log.getSeed());
+        processingUnit = machine.processingUnit;
+    }
+
+    ProcessingUnit getProcessingUnit() {
+        return processingUnit;
+    }
+
+    int run() {
+        if (SessionLog.romCrc(rom) != log.getRomCrc()) {
+            return ROM_MISMATCH;
+        }
+
+        event = 0;
+        checkpoint = 0;
+        for (frame = 0; frame < log.getFrames(); frame++) {
+            if (event < log.getEventCount() && log.getEventFrame(event) == frame) {
+                if (log.getEventInstructions(event) != processingUnit.getInstructionCount()) {
+                    return INPUT_MISMATCH;
+                }
+                machine.keyboard.setKeys(log.getEventKeys(event));
+                event++;
+            }
+
+            if (processingUnit.runFrame() != ProcessingUnit.CYCLE_OK) {
+                return CYCLE_FAILED;
+            }
+
+            if (checkpoint < log.getCheckpointCount() && log.getCheckpointFrame(checkpoint) == frame + 1) {
+                if (log.getCheckpointHash(checkpoint) != SessionLog.hash(machine.frameBuffer)) {
+                    return FRAME_MISMATCH;
+                }
+                checkpoint++;
+            }
+        }
+
+        return REPLAY_OK;
+    }
+
+    long getFrame() {
+        return frame;
+    }
+
+    long getInstructionCount() {
+        return processingUnit.getInstructionCount();
+    }
+
+    FrameBuffer getFrameBuffer() {
+        return machine.frameBuffer;
+    }
+
+    String describeStatus(int status) {
+        switch (status) {
+            case REPLAY_OK:
+                return String.format("Replayed %d frames, frame buffer matched at all %d checkpoints", frame, checkpoint);
+            case ROM_MISMATCH:
+                return "Session was recorded with another ROM";
+            case INPUT_MISMATCH:
+                return String.format("Replay diverged before frame %d, key change expected after %d instructions but got %d",
+                        frame, log.getEventInstructions(event), processingUnit.getInstructionCount());
+            case FRAME_MISMATCH:
+                return String.format("Frame buffer differs from the recording at frame %d", frame + 1);
+            case CYCLE_FAILED:
+                return String.format("Replay failed at frame %d", frame);
+            default:
+                return String.format("Unknown replay status %d", status);
+        }
+    }
+}
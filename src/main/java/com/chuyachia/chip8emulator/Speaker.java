@@ -0,0 +1,9 @@
+package com.chuyachia.chip8emulator;
+
+public interface Speaker {
+
+    Speaker NONE = on -> { };
+
+    // Called by the emulation thread at every timer tick, the tone sounds while the sound timer is not zero
+    void setTone(boolean on);
+}
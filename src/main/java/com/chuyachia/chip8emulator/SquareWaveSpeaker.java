@@ -0,0 +1,99 @@
+package com.chuyachia.chip8emulator;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+// Synthesizes the sound timer tone on its own thread, a square wave written in chunks of 10 ms to the sink from a
+// buffer allocated once. The emulation thread only flips a volatile flag at each timer tick, the audio thread picks
+// it up at the next chunk.
+public class SquareWaveSpeaker implements Speaker, AutoCloseable {
+
+    final static int TONE_FREQUENCY = 440;
+    final static short AMPLITUDE = 4_000;
+    final static int CHUNK_SAMPLES = AudioSink.SAMPLE_RATE / 100;
+    private final static long CHUNK_NANOS = 10_000_000;
+    private final static int BYTES_PER_SAMPLE = 2;
+
+    private final AudioSink sink;
+    private final byte[] chunk = new byte[CHUNK_SAMPLES * BYTES_PER_SAMPLE];
+    private final Thread thread;
+    private volatile boolean tone;
+    private volatile boolean running = true;
+    // Samples since the tone started, keeps the wave going from one chunk to the next
+    private long phase;
+
+    public SquareWaveSpeaker(AudioSink sink) {
+        this.sink = sink;
+        thread = new Thread(this::run, "Chip8 audio");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Plays on the default audio device, or nowhere when there is none
+    public static SquareWaveSpeaker open() {
+        try {
+            return new SquareWaveSpeaker(LineSink.open(CHUNK_SAMPLES * BYTES_PER_SAMPLE * 4));
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.out.println(String.format("No audio device, the emulator is silent: %s", e.getMessage()));
+            return new SquareWaveSpeaker(AudioSink.NONE);
+        }
+    }
+
+    @Override
+    public void setTone(boolean on) {
+        tone = on;
+    }
+
+    // Stops the audio thread once the chunk it is writing is done and closes the sink
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+            sink.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println(String.format("Could not close the audio output: %s", e.getMessage()));
+        }
+    }
+
+    private void run() {
+        long nextChunk = System.nanoTime();
+        while (running) {
+            fill(tone);
+            try {
+                sink.write(chunk, chunk.length);
+            } catch (IOException e) {
+                System.out.println(String.format("Audio output failed, the emulator is silent: %s", e.getMessage()));
+                return;
+            }
+
+            if (!sink.isPaced()) {
+                nextChunk += CHUNK_NANOS;
+                long remaining;
+                while ((remaining = nextChunk - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+            }
+        }
+    }
+
+    private void fill(boolean on) {
+        if (!on) {
+            phase = 0;
+            Arrays.fill(chunk, (byte) 0);
+            return;
+        }
+
+        for (int i = 0; i < CHUNK_SAMPLES; i++) {
+            // High for the first half of every period
+            short sample = (phase * TONE_FREQUENCY * 2 / AudioSink.SAMPLE_RATE & 1) == 0 ? AMPLITUDE : -AMPLITUDE;
+            chunk[i * BYTES_PER_SAMPLE] = (byte) sample;
+            chunk[i * BYTES_PER_SAMPLE + 1] = (byte) (sample >> 8);
+            phase++;
+        }
+    }
+}
@@ -1,39 +1,118 @@
 package com.chuyachia.chip8emulator;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Arrays;
 
 public class Stack implements Serializable {
-    public final byte STACK_LEVEL = 16;
-    private byte pointer;
-    private final short[] stack;
+    // Matches the identifier of the original class so that older save files can still be restored
+    private static final long serialVersionUID = 1558249276580482059L;
+    // Fields of the original class, which older save files hold
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("pointer", byte.class),
+            new ObjectStreamField("stack", short[].class)
+    };
+
+    public static final int EMPTY = -1;
+    public static final byte STACK_LEVEL = 16;
+    // Pointer then levels
+    final static int SIZE = 1 + STACK_LEVEL * 2;
+    private final static int LEVELS = 1;
+
+    // Part of a machine state, or an array of its own for a stack outside the machine
+    private transient byte[] state;
+    private transient int offset;
 
     public Stack() {
-        this.pointer = -1;
-        this.stack = new short[STACK_LEVEL];
+        this(new byte[SIZE], 0);
+        clear();
+    }
+
+    Stack(byte[] state, int offset) {
+        this.state = state;
+        this.offset = offset;
     }
 
-    public short peek() throws Exception {
+    public int peek() {
+        int pointer = state[offset];
         if (pointer < 0) {
-            throw new Exception("Stack is empty");
+            return EMPTY;
         }
 
-        return stack[pointer];
+        return level(pointer) & 0xffff;
     }
 
-    public short pop() throws Exception {
+    public int pop() {
+        int pointer = state[offset];
         if (pointer < 0) {
-            throw new Exception("Stack is empty");
+            return EMPTY;
         }
 
-        return stack[pointer--];
+        state[offset] = (byte) (pointer - 1);
+        return level(pointer) & 0xffff;
     }
 
-    public void push(short value) throws Exception {
+    public boolean push(short value) {
+        int pointer = state[offset];
         if (pointer >= STACK_LEVEL-1) {
-            throw new Exception("Stack overflow");
+            return false;
         }
 
-        stack[++pointer] = value;
+        state[offset] = (byte) ++pointer;
+        MachineState.setShort(state, offset + LEVELS + pointer * 2, value);
+        return true;
+    }
+
+    void clear() {
+        state[offset] = -1;
+        Arrays.fill(state, offset + LEVELS, offset + SIZE, (byte) 0);
     }
 
+    void copyFrom(Stack other) {
+        System.arraycopy(other.state, other.offset, state, offset, SIZE);
+    }
+
+    boolean sameAs(Stack other) {
+        return MachineState.sameRange(state, offset, other.state, other.offset, SIZE);
+    }
+
+    private short level(int pointer) {
+        return MachineState.getShort(state, offset + LEVELS + pointer * 2);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        short[] levels = new short[STACK_LEVEL];
+        for (int i = 0; i < STACK_LEVEL; i++) {
+            levels[i] = level(i);
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("pointer", state[offset]);
+        fields.put("stack", levels);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        short[] levels = (short[]) fields.get("stack", null);
+        state = new byte[SIZE];
+        offset = 0;
+        state[0] = fields.get("pointer", (byte) -1);
+        for (int i = 0; levels != null && i < Math.min(levels.length, STACK_LEVEL); i++) {
+            MachineState.setShort(state, LEVELS + i * 2, levels[i]);
+        }
+    }
+
+    // Return addresses from the bottom of the stack
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i <= state[offset]; i++) {
+            builder.append(i == 0 ? "" : ", ").append(String.format("%03X", level(i) & 0xffff));
+        }
+
+        return builder.append(']').toString();
+    }
 }
@@ -0,0 +1,59 @@
+package com.chuyachia.chip8emulator;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+// Captures the samples to a WAV file, the sizes in the header are filled in on close
+class WavSink implements AudioSink {
+
+    private final static int HEADER_SIZE = 44;
+
+    private final RandomAccessFile file;
+    private long dataSize;
+
+    WavSink(Path path) throws IOException {
+        file = new RandomAccessFile(path.toFile(), "rw");
+        file.setLength(0);
+        file.write(header(0));
+    }
+
+    @Override
+    public void write(byte[] samples, int length) throws IOException {
+        file.write(samples, 0, length);
+        dataSize += length;
+    }
+
+    @Override
+    public boolean isPaced() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.seek(0);
+        file.write(header(dataSize));
+        file.close();
+    }
+
+    private static byte[] header(long dataSize) {
+        int bytesPerFrame = FORMAT.getFrameSize();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'});
+        header.putInt((int) (HEADER_SIZE - 8 + dataSize));
+        header.put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        header.putInt(16);
+        // PCM
+        header.putShort((short) 1);
+        header.putShort((short) FORMAT.getChannels());
+        header.putInt(SAMPLE_RATE);
+        header.putInt(SAMPLE_RATE * bytesPerFrame);
+        header.putShort((short) bytesPerFrame);
+        header.putShort((short) FORMAT.getSampleSizeInBits());
+        header.put(new byte[]{'d', 'a', 't', 'a'});
+        header.putInt((int) dataSize);
+        return header.array();
+    }
+}
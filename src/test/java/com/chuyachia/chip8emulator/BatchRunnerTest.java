@@ -0,0 +1,83 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchRunnerTest {
+
+    private final static String[] ROMS = {"15PUZZLE", "BLINKY", "INVADERS", "PONG", "TETRIS"};
+
+    @Test
+    public void testParallelRunsMatchSequentialRuns() throws IOException {
+        List<BatchRunner.Job> jobs = new ArrayList<>();
+        for (int copy = 0; copy < 3; copy++) {
+            for (String rom : ROMS) {
+                jobs.add(new BatchRunner.Job(rom, Files.readAllBytes(Paths.get("rom", rom)), 200_000));
+            }
+        }
+
+        List<BatchRunner.Result> sequential = new BatchRunner(1).run(jobs);
+        BatchRunner parallelRunner = new BatchRunner(4);
+        assertTrue(parallelRunner.setEngine(CpuEngines.JIT));
+        List<BatchRunner.Result> parallel = parallelRunner.run(jobs);
+
+        assertEquals(jobs.size(), parallel.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            BatchRunner.Result expected = sequential.get(i);
+            BatchRunner.Result actual = parallel.get(i);
+            assertEquals(jobs.get(i).name, actual.name);
+            assertNull(actual.failure);
+            assertEquals(expected.instructions, actual.instructions);
+            assertEquals(expected.frameDigest, actual.frameDigest);
+            assertEquals(expected.stateDigest, actual.stateDigest);
+            assertEquals(sequential.get(i % ROMS.length).stateDigest, actual.stateDigest);
+        }
+    }
+
+    @Test
+    public void testInputScriptAnswersKeyWait() throws IOException {
+        // 0x200 LD V3, K / ADD V4, 1 / JP 0x202
+        byte[] rom = {(byte) 0xF3, 0x0A, 0x74, 0x01, 0x12, 0x02};
+        BatchRunner runner = new BatchRunner(2);
+
+        BatchRunner.Result halted = runner.run(Arrays.asList(new BatchRunner.Job("halted", rom, 10_000))).get(0);
+        assertNull(halted.failure);
+        assertEquals(1, halted.instructions);
+
+        InputScript script = InputScript.parse(Arrays.asList("# wait a second", "60 b down", "", "61 B up"));
+        BatchRunner.Result answered = runner.run(Arrays.asList(
+                new BatchRunner.Job("answered", rom, 10_000, 500, script))).get(0);
+        assertTrue(answered.instructions >= 10_000);
+        assertTrue(answered.frames > 61);
+    }
+
+    @Test
+    public void testMalformedInputScriptIsRejected() {
+        for (String line : new String[]{"10 5", "10 G down", "10 5 held", "x 5 up"}) {
+            try {
+                InputScript.parse(Arrays.asList(line));
+                fail(line);
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().startsWith("Line 1 of input script"));
+            }
+        }
+
+        try {
+            InputScript.parse(Arrays.asList("20 1 down", "10 1 up"));
+            fail("Entries out of order");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().startsWith("Line 2 of input script"));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class BlockCacheTest {
+
+    private final static int CYCLES = 1_000_000;
+
+    @Test
+    public void testBlockCacheMatchesInterpreter() throws IOException {
+        File[] roms = new File("rom").listFiles(File::isFile);
+        assertNotNull(roms);
+
+        for (File rom : roms) {
+            byte[] game = Files.readAllBytes(rom.toPath());
+            Machine interpreted = new Machine(game, CpuEngines.INTERPRETER);
+            Machine cached = new Machine(game, CpuEngines.BLOCK_CACHE);
+            for (int frame = 0; frame < CYCLES / 10; frame++) {
+                assertEquals(ProcessingUnit.CYCLE_OK, interpreted.run(10));
+                assertEquals(ProcessingUnit.CYCLE_OK, cached.run(10));
+            }
+
+            interpreted.assertSameState(cached, rom.getName());
+        }
+    }
+
+    @Test
+    public void testFusedPairsCountLikeSingleInstructions() {
+        // 0x200 LD V0, 5 / LD DT, V0 / LD V1, DT / SE V1, 0 / JP 0x204 / ADD V2, 1 / SE V2, 16 / JP 0x20A /
+        // 0x210 LD I, 0x21E / DRW V3, V4, 5 / ADD V3, 1 / SNE V3, 64 / JP 0x200 / JP 0x210, then a sprite at 0x21E
+        byte[] game = {
+                0x60, 0x05, (byte) 0xF0, 0x15, (byte) 0xF1, 0x07, 0x31, 0x00, 0x12, 0x04, 0x72, 0x01, 0x32, 0x10,
+                0x12, 0x0A, (byte) 0xA2, 0x1E, (byte) 0xD3, 0x45, 0x73, 0x01, 0x43, 0x40, 0x12, 0x00, 0x12, 0x10,
+                0x00, 0x00, (byte) 0xF0, (byte) 0x90, (byte) 0x90, (byte) 0x90, (byte) 0xF0
+        };
+        Machine interpreted = new Machine(game, CpuEngines.INTERPRETER);
+        Machine cached = new Machine(game, CpuEngines.BLOCK_CACHE);
+        // Budgets of every length end the runs in the middle of pairs as well
+        for (int run = 0; run < 10_000; run++) {
+            int instructions = run % 7 + 1;
+            assertEquals(ProcessingUnit.CYCLE_OK, interpreted.run(instructions));
+            assertEquals(ProcessingUnit.CYCLE_OK, cached.run(instructions));
+            if (run % 10 == 9) {
+                interpreted.processingUnit.endFrame();
+                cached.processingUnit.endFrame();
+            }
+            interpreted.assertSameState(cached, "run " + run);
+        }
+    }
+
+    @Test
+    public void testSelfModifyingCodeInvalidatesBlock() {
+        // 0x200 LD V0, 0x62 / LD V1, 0x34 / LD I, 0x20A / LD [I], V1 / JP 0x20A / 0x20A CLS / JP 0x20C
+        // The store replaces the CLS with LD V2, 0x34
+        byte[] game = {
+                0x60, 0x62, 0x61, 0x34, (byte) 0xA2, 0x0A, (byte) 0xF1, 0x55,
+                0x12, 0x0A, 0x00, (byte) 0xE0, 0x12, 0x0C
+        };
+        Machine cached = new Machine(game, CpuEngines.BLOCK_CACHE);
+        Machine interpreted = new Machine(game, CpuEngines.INTERPRETER);
+        for (Machine machine : new Machine[]{cached, interpreted}) {
+            // Run the CLS first so that its block is decoded before being overwritten
+            machine.memory.setPC((short) 0x20A);
+            assertEquals(ProcessingUnit.CYCLE_OK, machine.run(1));
+            machine.memory.setPC((short) 0x200);
+            assertEquals(ProcessingUnit.CYCLE_OK, machine.run(6));
+        }
+
+        assertEquals(0x34, cached.processingUnit.getV()[2]);
+        interpreted.assertSameState(cached, "self modifying program");
+    }
+}
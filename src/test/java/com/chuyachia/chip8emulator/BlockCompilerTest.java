@@ -0,0 +1,90 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class BlockCompilerTest {
+
+    private final static int CYCLES = 1_000_000;
+
+    @Test
+    public void testCompiledBlocksMatchInterpreter() throws IOException {
+        File[] roms = new File("rom").listFiles(File::isFile);
+        assertNotNull(roms);
+
+        for (File rom : roms) {
+            byte[] game = Files.readAllBytes(rom.toPath());
+            Machine interpreted = new Machine(game, CpuEngines.INTERPRETER);
+            Machine compiled = new Machine(game, CpuEngines.JIT);
+            // Uneven runs stop compiled blocks at every possible instruction
+            int executed = 0;
+            for (int run = 0; executed < CYCLES; run++) {
+                int instructions = 1 + run % 13;
+                assertEquals(ProcessingUnit.CYCLE_OK, interpreted.run(instructions));
+                assertEquals(ProcessingUnit.CYCLE_OK, compiled.run(instructions));
+                executed += instructions;
+            }
+
+            assertTrue(rom.getName(), compiled.getCompiledBlocks() > 0);
+            interpreted.assertSameState(compiled, rom.getName());
+        }
+    }
+
+    @Test
+    public void testFlagRegisterArithmetic() {
+        // Random operands through the arithmetic instructions, each flag is copied out before the next one
+        // overwrites it. The last ones work on VF itself.
+        byte[] game = {
+                (byte) 0xC0, (byte) 0xFF, (byte) 0xC1, (byte) 0xFF, (byte) 0xCF, (byte) 0xFF, (byte) 0x80, 0x14,
+                (byte) 0x82, (byte) 0xF0, (byte) 0x80, 0x15, (byte) 0x83, (byte) 0xF0, (byte) 0x81, 0x07,
+                (byte) 0x84, (byte) 0xF0, (byte) 0x80, 0x06, (byte) 0x85, (byte) 0xF0, (byte) 0x81, 0x0E,
+                (byte) 0x86, (byte) 0xF0, (byte) 0x8F, 0x15, (byte) 0x87, (byte) 0xF0, (byte) 0x8F, 0x1E,
+                (byte) 0x88, (byte) 0xF0, (byte) 0x8F, 0x04, (byte) 0x89, (byte) 0xF0, (byte) 0x8F, 0x06,
+                (byte) 0x8A, (byte) 0xF0, 0x4F, 0x00, 0x7B, 0x01, 0x50, 0x10,
+                0x7C, 0x01, 0x12, 0x00
+        };
+        Machine interpreted = new Machine(game, CpuEngines.INTERPRETER);
+        Machine compiled = new Machine(game, CpuEngines.JIT);
+        for (int run = 0; run < 100_000; run++) {
+            assertEquals(ProcessingUnit.CYCLE_OK, interpreted.run(10));
+            assertEquals(ProcessingUnit.CYCLE_OK, compiled.run(10));
+            interpreted.assertSameState(compiled, "flag register arithmetic");
+        }
+
+        assertTrue(compiled.getCompiledBlocks() > 0);
+    }
+
+    @Test
+    public void testRewrittenCodeIsRecompiled() {
+        // 0x200 ADD V1, 1 / ADD V2, 1 / JP 0x200
+        byte[] game = {0x71, 0x01, 0x72, 0x01, 0x12, 0x00};
+        Machine interpreted = new Machine(game, CpuEngines.INTERPRETER);
+        Machine compiled = new Machine(game, CpuEngines.JIT);
+        int hotRun = BlockCompiler.HOT_THRESHOLD * BlockCache.MAX_BLOCK_LENGTH * 4;
+        for (Machine machine : new Machine[]{interpreted, compiled}) {
+            assertEquals(ProcessingUnit.CYCLE_OK, machine.run(hotRun));
+        }
+        int compiledBefore = compiled.getCompiledBlocks();
+        assertTrue(compiledBefore > 0);
+
+        for (Machine machine : new Machine[]{interpreted, compiled}) {
+            // ADD V2, 1 becomes ADD V2, 5
+            machine.memory.setByte(0x203, (byte) 5);
+            assertEquals(ProcessingUnit.CYCLE_OK, machine.run(3));
+        }
+        interpreted.assertSameState(compiled, "rewritten program");
+
+        for (Machine machine : new Machine[]{interpreted, compiled}) {
+            assertEquals(ProcessingUnit.CYCLE_OK, machine.run(hotRun));
+        }
+        assertTrue(compiled.getCompiledBlocks() > compiledBefore);
+        interpreted.assertSameState(compiled, "rewritten program");
+    }
+}
@@ -0,0 +1,68 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CpuEnginesTest {
+
+    @Test
+    public void testBuiltInEnginesAreFoundOnTheClassPath() {
+        assertEquals(Arrays.asList(CpuEngines.INTERPRETER, CpuEngines.BLOCK_CACHE, CpuEngines.JIT), CpuEngines.names());
+
+        ProcessingUnit processingUnit = new Machine(new byte[0], CpuEngines.INTERPRETER).processingUnit;
+        assertNull(CpuEngines.create("missing", processingUnit));
+        assertFalse(processingUnit.setEngine("missing"));
+        assertEquals(CpuEngines.INTERPRETER, processingUnit.getEngine().getName());
+        for (String name : CpuEngines.names()) {
+            assertTrue(processingUnit.setEngine(name));
+            assertEquals(name, processingUnit.getEngine().getName());
+        }
+    }
+
+    @Test
+    public void testStepRunsOneInstruction() {
+        // 0x200 LD V0, 1 / LD V1, 2 / JP 0x200
+        byte[] game = {0x60, 0x01, 0x61, 0x02, 0x12, 0x00};
+        for (String name : CpuEngines.names()) {
+            Machine machine = new Machine(game, name);
+            CpuEngine engine = machine.processingUnit.getEngine();
+            assertEquals(ProcessingUnit.CYCLE_OK, engine.step());
+            assertEquals(name, 1, machine.processingUnit.getInstructionCount());
+            assertEquals(name, 0x202, machine.memory.getPC());
+            assertEquals(name, 1, machine.processingUnit.getV()[0]);
+            assertEquals(name, 0, machine.processingUnit.getV()[1]);
+        }
+    }
+
+    @Test
+    public void testStateMovesBetweenEngines() throws IOException {
+        byte[] game = Files.readAllBytes(Paths.get("rom", "INVADERS"));
+        Machine reference = new Machine(game, CpuEngines.INTERPRETER);
+        Machine switching = new Machine(game, CpuEngines.INTERPRETER);
+        ByteBuffer state = ByteBuffer.allocate(SaveState.SIZE);
+
+        for (int round = 0; round < 30; round++) {
+            String name = CpuEngines.names().get(round % CpuEngines.names().size());
+            CpuEngine engine = CpuEngines.create(name, switching.processingUnit);
+            state.clear();
+            switching.processingUnit.getEngine().saveState(state);
+            state.flip();
+            engine.restoreState(state);
+            switching.processingUnit.setEngine(engine);
+
+            reference.run(5_000);
+            switching.run(5_000);
+            reference.assertSameState(switching, name);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameBufferTest {
+
+    @Test
+    public void testSpritesMatchPixelByPixelDrawing() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        boolean[][] expected = new boolean[FrameBuffer.HEIGHT][FrameBuffer.WIDTH];
+        Random random = new Random(42);
+
+        for (int sprite = 0; sprite < 10_000; sprite++) {
+            byte x = (byte) random.nextInt(256);
+            byte y = (byte) random.nextInt(256);
+            int rows = 1 + random.nextInt(15);
+            boolean expectedCollision = false;
+
+            frameBuffer.beginSprite();
+            for (int offset = 0; offset < rows; offset++) {
+                byte data = (byte) random.nextInt(256);
+                frameBuffer.display(x, y, data, offset);
+                for (int bit = 0; bit < FrameBuffer.BYTE_SIZE; bit++) {
+                    if ((data & 0x80 >>> bit) != 0) {
+                        int pixelX = ((x & 0xff) + bit) % FrameBuffer.WIDTH;
+                        int pixelY = ((y & 0xff) + offset) % FrameBuffer.HEIGHT;
+                        expectedCollision |= expected[pixelY][pixelX];
+                        expected[pixelY][pixelX] = !expected[pixelY][pixelX];
+                    }
+                }
+            }
+
+            assertEquals(expectedCollision, frameBuffer.erasedPrevious());
+        }
+
+        for (int y = 0; y < FrameBuffer.HEIGHT; y++) {
+            for (int x = 0; x < FrameBuffer.WIDTH; x++) {
+                assertEquals(expected[y][x], frameBuffer.isSet(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testHiresSpritesMatchPixelByPixelDrawing() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        frameBuffer.switchResolution(true);
+        boolean[][] expected = new boolean[FrameBuffer.HIRES_HEIGHT][FrameBuffer.HIRES_WIDTH];
+        Random random = new Random(42);
+
+        for (int sprite = 0; sprite < 10_000; sprite++) {
+            byte x = (byte) random.nextInt(256);
+            byte y = (byte) random.nextInt(256);
+            boolean wide = random.nextBoolean();
+            int width = wide ? 2 * FrameBuffer.BYTE_SIZE : FrameBuffer.BYTE_SIZE;
+            int rows = wide ? 16 : 1 + random.nextInt(15);
+            boolean expectedCollision = false;
+
+            frameBuffer.beginSprite();
+            for (int offset = 0; offset < rows; offset++) {
+                int data = random.nextInt(1 << width);
+                if (wide) {
+                    frameBuffer.displayWide(x, y, (short) data, offset);
+                } else {
+                    frameBuffer.display(x, y, (byte) data, offset);
+                }
+                for (int bit = 0; bit < width; bit++) {
+                    if ((data & 1 << (width - 1 - bit)) != 0) {
+                        int pixelX = ((x & 0xff) + bit) % FrameBuffer.HIRES_WIDTH;
+                        int pixelY = ((y & 0xff) + offset) % FrameBuffer.HIRES_HEIGHT;
+                        expectedCollision |= expected[pixelY][pixelX];
+                        expected[pixelY][pixelX] = !expected[pixelY][pixelX];
+                    }
+                }
+            }
+
+            assertEquals(expectedCollision, frameBuffer.erasedPrevious());
+        }
+
+        for (int y = 0; y < FrameBuffer.HIRES_HEIGHT; y++) {
+            for (int x = 0; x < FrameBuffer.HIRES_WIDTH; x++) {
+                assertEquals(expected[y][x], frameBuffer.isSet(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testScrollingMovesPixelsAcrossWords() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        frameBuffer.switchResolution(true);
+        frameBuffer.display((byte) 60, (byte) 10, (byte) 0xff, 0);
+
+        frameBuffer.scrollRight();
+        assertFalse(frameBuffer.isSet(63, 10));
+        assertTrue(frameBuffer.isSet(64, 10));
+        assertTrue(frameBuffer.isSet(71, 10));
+
+        frameBuffer.scrollDown(3);
+        assertFalse(frameBuffer.isSet(64, 10));
+        assertTrue(frameBuffer.isSet(64, 13));
+
+        frameBuffer.scrollLeft();
+        frameBuffer.scrollLeft();
+        assertTrue(frameBuffer.isSet(56, 13));
+        assertTrue(frameBuffer.isSet(63, 13));
+        assertFalse(frameBuffer.isSet(64, 13));
+
+        // Pixels pushed off an edge are gone
+        frameBuffer.scrollDown(FrameBuffer.HIRES_HEIGHT);
+        assertTrue(frameBuffer.toString().indexOf('#') < 0);
+    }
+
+    @Test
+    public void testLowResolutionScrollingStaysInItsRows() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        frameBuffer.display((byte) 0, (byte) 30, (byte) 0xf0, 0);
+        frameBuffer.scrollRight();
+        frameBuffer.scrollDown(1);
+        assertEquals(0, frameBuffer.getRows()[30]);
+        assertEquals(0xf0L << 52, frameBuffer.getRows()[31]);
+
+        frameBuffer.scrollDown(1);
+        assertTrue(frameBuffer.toString().indexOf('#') < 0);
+        for (long word : frameBuffer.getRows()) {
+            assertEquals(0, word);
+        }
+    }
+
+    @Test
+    public void testCollisionCoversEveryRowOfTheSprite() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        frameBuffer.beginSprite();
+        frameBuffer.display((byte) 0, (byte) 0, (byte) 0xff, 0);
+        assertFalse(frameBuffer.erasedPrevious());
+
+        // Only the first row overlaps
+        frameBuffer.beginSprite();
+        frameBuffer.display((byte) 0, (byte) 0, (byte) 0x80, 0);
+        frameBuffer.display((byte) 0, (byte) 0, (byte) 0x80, 1);
+        assertTrue(frameBuffer.erasedPrevious());
+    }
+
+    @Test
+    public void testHighResolutionCollisionCountsRows() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        frameBuffer.setHires(true);
+        frameBuffer.beginSprite();
+        frameBuffer.displayWide((byte) 0, (byte) 60, (short) 0xffff, 0);
+        frameBuffer.displayWide((byte) 0, (byte) 60, (short) 0xffff, 1);
+        assertEquals(0, frameBuffer.collisionResult());
+
+        // Two of the three rows overlap
+        frameBuffer.beginSprite();
+        frameBuffer.displayWide((byte) 0, (byte) 60, (short) 0x8000, 0);
+        frameBuffer.displayWide((byte) 0, (byte) 60, (short) 0x0001, 1);
+        frameBuffer.displayWide((byte) 0, (byte) 60, (short) 0x8000, 2);
+        assertEquals(2, frameBuffer.collisionResult());
+
+        // Rows clipped at the bottom count too
+        frameBuffer.beginSprite();
+        for (int row = 0; row < 6; row++) {
+            frameBuffer.displayWideClipped((byte) 100, (byte) 60, (short) 0x0100, row);
+        }
+        assertEquals(2, frameBuffer.collisionResult());
+
+        frameBuffer.setHires(false);
+        frameBuffer.beginSprite();
+        frameBuffer.display((byte) 0, (byte) 0, (byte) 0xff, 0);
+        frameBuffer.display((byte) 0, (byte) 0, (byte) 0xff, 1);
+        frameBuffer.beginSprite();
+        frameBuffer.display((byte) 0, (byte) 0, (byte) 0xff, 0);
+        frameBuffer.display((byte) 0, (byte) 0, (byte) 0xff, 1);
+        assertEquals(1, frameBuffer.collisionResult());
+    }
+
+    @Test
+    public void testSpriteWrapsAroundTheRightEdge() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        frameBuffer.display((byte) 60, (byte) 31, (byte) 0xff, 1);
+        assertTrue(frameBuffer.isSet(63, 0));
+        assertTrue(frameBuffer.isSet(0, 0));
+        assertTrue(frameBuffer.isSet(3, 0));
+        assertFalse(frameBuffer.isSet(4, 0));
+        assertFalse(frameBuffer.isSet(59, 0));
+    }
+
+    @Test
+    public void testSavedGameLayoutRoundTrip() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        frameBuffer.display((byte) 5, (byte) 3, (byte) 0xb3, 0);
+        frameBuffer.display((byte) 61, (byte) 3, (byte) 0x81, 1);
+        byte[][] pixels = frameBuffer.getPixels();
+        assertEquals((byte) 0x05, pixels[3][0]);
+        assertEquals((byte) 0x98, pixels[3][1]);
+
+        FrameBuffer restored = new FrameBuffer();
+        restored.setPixels(pixels);
+        assertArrayEquals(frameBuffer.getRows(), restored.getRows());
+    }
+}
@@ -0,0 +1,73 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertFalse;
+
+public class FrameExchangeTest {
+
+    private final static int ROWS = FrameBuffer.HEIGHT;
+    private final static int FRAMES = 200_000;
+
+    @Test
+    public void testLatestPublishedFrameIsAcquired() {
+        FrameExchange exchange = new FrameExchange(ROWS);
+        assertArrayEquals(frame(0), exchange.acquire());
+
+        exchange.publish(frame(1));
+        assertArrayEquals(frame(1), exchange.acquire());
+
+        // A frame nobody acquired gets replaced by the next one
+        exchange.publish(frame(2));
+        exchange.publish(frame(3));
+        assertArrayEquals(frame(3), exchange.acquire());
+        assertArrayEquals(frame(3), exchange.acquire());
+    }
+
+    @Test
+    public void testAcquiredFramesAreNeverTorn() throws InterruptedException {
+        FrameExchange exchange = new FrameExchange(ROWS);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread consumer = new Thread(() -> {
+            long previous = 0;
+            while (previous < FRAMES && failure.get() == null) {
+                long[] frame = exchange.acquire();
+                for (long row : frame) {
+                    if (row != frame[0]) {
+                        failure.set(String.format("Torn frame, rows %d and %d", frame[0], row));
+                    }
+                }
+                if (frame[0] < previous) {
+                    failure.set(String.format("Frame %d acquired after frame %d", frame[0], previous));
+                }
+                previous = frame[0];
+            }
+        });
+        consumer.start();
+
+        long[] frame = new long[ROWS];
+        for (int i = 1; i <= FRAMES; i++) {
+            for (int row = 0; row < ROWS; row++) {
+                frame[row] = i;
+            }
+            exchange.publish(frame);
+        }
+        consumer.join(10_000);
+
+        assertNull(failure.get());
+        assertFalse(consumer.isAlive());
+    }
+
+    private static long[] frame(long value) {
+        long[] frame = new long[ROWS];
+        for (int row = 0; row < ROWS; row++) {
+            frame[row] = value;
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,87 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameMetricsTest {
+
+    private final static long START = 1_000_000_000L;
+
+    @Test
+    public void testFrameTimeDriftAndInstructionRate() {
+        FrameMetrics metrics = new FrameMetrics();
+        metrics.sessionStarted(START, 0);
+        // 61 frames each 100 us late on the previous one, 10 instructions per frame
+        long now = START;
+        for (int frame = 0; frame <= FrameScheduler.REFRESH_RATE; frame++) {
+            metrics.frameStarted(now, frame * 10L);
+            now += FrameScheduler.FRAME_NANOS + 100_000;
+        }
+
+        assertEquals(FrameScheduler.REFRESH_RATE + 1, metrics.getFrames());
+        assertEquals(FrameScheduler.REFRESH_RATE, metrics.getFrameTime().getCount());
+        assertEquals((FrameScheduler.FRAME_NANOS + 100_000) / 1_000, metrics.getFrameTime().getMax());
+        assertEquals(FrameScheduler.REFRESH_RATE * 100, metrics.getTimerDrift());
+        // 600 instructions in a bit more than a second
+        assertEquals(596, metrics.getInstructionsPerSecond());
+    }
+
+    @Test
+    public void testPublishedOverJmx() throws Exception {
+        FrameMetrics metrics = new FrameMetrics();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(FrameMetrics.OBJECT_NAME);
+        assertTrue(metrics.register());
+        try {
+            metrics.framePainted(2_000_000);
+            CompositeData paintTime = (CompositeData) server.getAttribute(name, "PaintTime");
+            assertEquals(1L, paintTime.get("count"));
+            assertEquals(2000L, paintTime.get("max"));
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(0, metrics.getPaintTime().getCount());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testServedOnLocalhost() throws IOException {
+        FrameMetrics metrics = new FrameMetrics();
+        metrics.sessionStarted(START, 0);
+        metrics.frameStarted(START, 0);
+        StatsServer statsServer = new StatsServer(metrics, 0);
+        statsServer.start();
+        try {
+            URL url = new URL("http", "localhost", statsServer.getPort(), StatsServer.PATH);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(200, connection.getResponseCode());
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = connection.getInputStream()) {
+                byte[] chunk = new byte[1024];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    body.write(chunk, 0, read);
+                }
+            }
+            String text = new String(body.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(text, text.startsWith("frames 1"));
+            assertTrue(text, text.contains("frame_time_us count 0"));
+        } finally {
+            statsServer.stop();
+        }
+    }
+}
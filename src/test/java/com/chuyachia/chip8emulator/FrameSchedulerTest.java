@@ -0,0 +1,50 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameSchedulerTest {
+
+    @Test
+    public void testInstructionsPerSecondMatchClockRate() {
+        for (int clockRate : new int[]{400, 500, 900, 1000, 2500}) {
+            FrameScheduler scheduler = new FrameScheduler(clockRate);
+            scheduler.reset();
+            int instructions = 0;
+            for (int frame = 0; frame < FrameScheduler.REFRESH_RATE; frame++) {
+                int frameInstructions = scheduler.instructionsForFrame();
+                assertTrue(Math.abs(frameInstructions * FrameScheduler.REFRESH_RATE - clockRate) < FrameScheduler.REFRESH_RATE);
+                instructions += frameInstructions;
+            }
+
+            assertEquals(clockRate, instructions);
+        }
+    }
+
+    @Test
+    public void testFramesArePacedAtRefreshRate() {
+        FrameScheduler scheduler = new FrameScheduler(500);
+        scheduler.reset();
+        long start = System.nanoTime();
+        for (int frame = 0; frame < 6; frame++) {
+            assertTrue(scheduler.awaitNextFrame());
+        }
+
+        assertTrue(System.nanoTime() - start >= 6 * FrameScheduler.FRAME_NANOS);
+    }
+
+    @Test
+    public void testTurboDoesNotWait() {
+        FrameScheduler scheduler = new FrameScheduler(500);
+        scheduler.setTurbo(true);
+        scheduler.reset();
+        long start = System.nanoTime();
+        for (int frame = 0; frame < 600; frame++) {
+            assertTrue(scheduler.awaitNextFrame());
+        }
+
+        assertTrue(System.nanoTime() - start < 600 * FrameScheduler.FRAME_NANOS);
+    }
+}
@@ -0,0 +1,68 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void testBucketsCoverValuesInOrder() {
+        int previous = 0;
+        for (long value = 0; value < 1 << 20; value++) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            assertTrue(Histogram.lowestOf(bucket) <= value);
+            // Off by at most an eighth
+            assertTrue(value - Histogram.lowestOf(bucket) <= value / 8);
+            previous = bucket;
+        }
+
+        assertEquals(16, Histogram.bucketOf(16));
+        assertEquals(16, Histogram.lowestOf(16));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(0, Histogram.bucketOf(-5));
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMean(), 0.0001);
+        assertEquals(1000, histogram.getMax());
+        assertEquals(Histogram.lowestOf(Histogram.bucketOf(500)), histogram.getPercentile(0.5));
+        assertEquals(Histogram.lowestOf(Histogram.bucketOf(990)), histogram.getPercentile(0.99));
+        assertEquals(1, histogram.getPercentile(0.0));
+
+        histogram.clear();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i % 100 + offset);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(102, histogram.getMax());
+    }
+}
@@ -0,0 +1,92 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class IdleLoopDetectorTest {
+
+    private final static int CLOCK_RATE = 6_000;
+    private final static int FRAMES = 3_000;
+
+    @Test
+    public void testJumpToSelfIsSkipped() {
+        // 0x200 JP 0x200
+        Machine machine = new Machine(new byte[]{0x12, 0x00}, CpuEngines.INTERPRETER);
+        assertEquals(ProcessingUnit.CYCLE_OK, machine.run(1_000));
+
+        assertEquals(1_000, machine.processingUnit.getInstructionCount());
+        // The jump is seen twice before the loop is known to be idle
+        assertEquals(998, machine.processingUnit.getIdleInstructionCount());
+        assertEquals(0x200, machine.memory.getPC());
+    }
+
+    @Test
+    public void testDelayLoopRunsUntilTimerExpires() {
+        // 0x200 LD V0, 3 / LD DT, V0 / 0x204 LD V1, DT / SE V1, 0 / JP 0x204 / 0x20A ADD V2, 1 / JP 0x20C
+        byte[] game = {
+                0x60, 0x03, (byte) 0xF0, 0x15, (byte) 0xF1, 0x07, 0x31, 0x00, 0x12, 0x04, 0x72, 0x01, 0x12, 0x0C
+        };
+        Machine skipping = new Machine(game, CpuEngines.INTERPRETER);
+        Machine running = new Machine(game, CpuEngines.INTERPRETER);
+        running.processingUnit.setIdleLoopSkipping(false);
+        for (Machine machine : new Machine[]{skipping, running}) {
+            machine.processingUnit.setClockRate(CLOCK_RATE);
+        }
+
+        for (int frame = 0; frame < 5; frame++) {
+            assertEquals(ProcessingUnit.CYCLE_OK, skipping.processingUnit.runFrame());
+            assertEquals(ProcessingUnit.CYCLE_OK, running.processingUnit.runFrame());
+            running.assertSameState(skipping, "frame " + frame);
+        }
+
+        assertEquals(1, skipping.processingUnit.getV()[2]);
+        assertTrue(skipping.processingUnit.getIdleInstructionCount() > 0);
+        assertEquals(0, running.processingUnit.getIdleInstructionCount());
+    }
+
+    @Test
+    public void testLoopWithSideEffectsIsNotSkipped() {
+        // 0x200 RND V0, 0 / JP 0x200, the random generator moves on even though V0 stays 0
+        Machine machine = new Machine(new byte[]{(byte) 0xC0, 0x00, 0x12, 0x00}, CpuEngines.INTERPRETER);
+        assertEquals(ProcessingUnit.CYCLE_OK, machine.run(1_000));
+
+        assertEquals(0, machine.processingUnit.getIdleInstructionCount());
+    }
+
+    @Test
+    public void testRomsRunTheSameWithAndWithoutSkipping() throws IOException {
+        File[] roms = new File("rom").listFiles(File::isFile);
+        assertNotNull(roms);
+
+        long idle = 0;
+        for (File rom : roms) {
+            byte[] game = Files.readAllBytes(rom.toPath());
+            for (String engine : CpuEngines.names()) {
+                Machine skipping = new Machine(game, engine);
+                Machine running = new Machine(game, engine);
+                running.processingUnit.setIdleLoopSkipping(false);
+                for (Machine machine : new Machine[]{skipping, running}) {
+                    machine.processingUnit.setClockRate(CLOCK_RATE);
+                }
+
+                String name = rom.getName() + " " + engine;
+                for (int frame = 0; frame < FRAMES; frame++) {
+                    assertEquals(name, ProcessingUnit.CYCLE_OK, skipping.processingUnit.runFrame());
+                    assertEquals(name, ProcessingUnit.CYCLE_OK, running.processingUnit.runFrame());
+                }
+
+                running.assertSameState(skipping, name);
+                idle += skipping.processingUnit.getIdleInstructionCount();
+            }
+        }
+
+        assertTrue(idle > 0);
+    }
+}
@@ -3,6 +3,7 @@ package com.chuyachia.chip8emulator;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class InstructionTest {
 
@@ -46,5 +47,18 @@ public class InstructionTest {
         assertEquals(0x0ea0, nnnn);
     }
 
+    @Test
+    public void testDecodeTableMatchesScan() {
+        for (int opcode = 0; opcode <= 0xffff; opcode++) {
+            assertEquals(Instruction.scan((short) opcode), Instruction.getMatched((short) opcode));
+        }
+    }
+
+    @Test
+    public void testIllegalInstruction() {
+        assertNull(Instruction.getMatched((short) 0x5ab1));
+        assertNull(Instruction.getMatched((short) 0xffff));
+    }
+
     // TODO add tests for other instructions
 }
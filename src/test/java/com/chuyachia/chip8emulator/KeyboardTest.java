@@ -0,0 +1,74 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyboardTest {
+
+    @Test
+    public void testPressAndRelease() {
+        Keyboard keyboard = new Keyboard();
+        keyboard.press(0xA);
+        keyboard.latch();
+        assertTrue(keyboard.isPressed((byte) 0xA));
+        assertFalse(keyboard.isPressed((byte) 0xB));
+
+        keyboard.release(0xA);
+        keyboard.latch();
+        assertFalse(keyboard.isPressed((byte) 0xA));
+    }
+
+    @Test
+    public void testRepeatedReleaseKeepsKeyReleased() {
+        Keyboard keyboard = new Keyboard();
+        keyboard.release(3);
+        keyboard.latch();
+        assertFalse(keyboard.isPressed((byte) 3));
+
+        keyboard.press(3);
+        keyboard.release(3);
+        keyboard.release(3);
+        keyboard.latch();
+        assertFalse(keyboard.isPressed((byte) 3));
+    }
+
+    @Test
+    public void testKeyWaitCompletesOnRelease() {
+        Keyboard keyboard = new Keyboard();
+        keyboard.press(9);
+        keyboard.release(9);
+        keyboard.latch();
+        keyboard.startKeyWait();
+        assertEquals(Keyboard.NO_KEY, keyboard.takeReleasedKey());
+
+        keyboard.press(0xC);
+        keyboard.press(4);
+        keyboard.latch();
+        assertEquals(Keyboard.NO_KEY, keyboard.takeReleasedKey());
+
+        keyboard.release(0xC);
+        keyboard.latch();
+        assertEquals(0xC, keyboard.takeReleasedKey());
+        keyboard.release(4);
+        keyboard.latch();
+        assertEquals(4, keyboard.takeReleasedKey());
+    }
+
+    @Test
+    public void testInputOnlyChangesOnLatch() {
+        Keyboard keyboard = new Keyboard();
+        keyboard.press(2);
+        assertFalse(keyboard.isPressed((byte) 2));
+        assertTrue(keyboard.latch());
+        assertTrue(keyboard.isPressed((byte) 2));
+        assertFalse(keyboard.latch());
+
+        keyboard.release(2);
+        assertTrue(keyboard.isPressed((byte) 2));
+        assertTrue(keyboard.latch());
+        assertFalse(keyboard.isPressed((byte) 2));
+    }
+}
@@ -0,0 +1,93 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LockstepValidatorTest {
+
+    private final static String[] ROMS = {"15PUZZLE", "BLINKY", "INVADERS", "PONG", "TETRIS"};
+    private final static long FAULTY_INSTRUCTION = 5_000;
+
+    @Test
+    public void testEnginesMatchTheInterpreter() throws IOException {
+        List<BatchRunner.Job> jobs = new ArrayList<>();
+        for (String rom : ROMS) {
+            jobs.add(new BatchRunner.Job(rom, Files.readAllBytes(Paths.get("rom", rom)), 100_000));
+        }
+
+        for (String engine : new String[]{CpuEngines.BLOCK_CACHE, CpuEngines.JIT}) {
+            LockstepValidator validator = new LockstepValidator(CpuEngines.provider(CpuEngines.INTERPRETER),
+                    CpuEngines.provider(engine), 7);
+            for (LockstepValidator.Result result : validator.run(jobs, 2)) {
+                assertNull(result.toString(), result.divergence);
+                assertTrue(result.name, result.instructions > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testDivergenceIsTracedToTheInstruction() throws IOException {
+        BatchRunner.Job job = new BatchRunner.Job("INVADERS", Files.readAllBytes(Paths.get("rom", "INVADERS")), 100_000);
+        LockstepValidator validator = new LockstepValidator(CpuEngines.provider(CpuEngines.INTERPRETER),
+                new FaultyProvider(), 1_000);
+
+        LockstepValidator.Result result = validator.run(job);
+        assertNotNull(result.divergence);
+        assertEquals("V", result.divergence.difference);
+        assertEquals(FAULTY_INSTRUCTION - 1, result.agreedInstructions);
+        String report = result.toString();
+        assertTrue(report, report.contains(String.format("Last %d instructions on faulty", LockstepValidator.TRACE_LENGTH)));
+        assertTrue(report, report.contains(String.format("faulty: %d instructions", FAULTY_INSTRUCTION)));
+    }
+
+    // Interpreter flipping a bit of V3 when it executes the faulty instruction
+    private static class FaultyProvider implements CpuEngineProvider {
+
+        @Override
+        public String getName() {
+            return "faulty";
+        }
+
+        @Override
+        public CpuEngine create(ProcessingUnit processingUnit) {
+            CpuEngine interpreter = new InterpreterEngine(processingUnit);
+            return new CpuEngine() {
+                @Override
+                public String getName() {
+                    return "faulty";
+                }
+
+                @Override
+                public int run(int instructions) {
+                    long before = processingUnit.getInstructionCount();
+                    int status = interpreter.run(instructions);
+                    if (before < FAULTY_INSTRUCTION && processingUnit.getInstructionCount() >= FAULTY_INSTRUCTION) {
+                        processingUnit.getV()[3] ^= 1;
+                    }
+                    return status;
+                }
+
+                @Override
+                public void saveState(ByteBuffer buffer) {
+                    interpreter.saveState(buffer);
+                }
+
+                @Override
+                public void restoreState(ByteBuffer buffer) {
+                    interpreter.restoreState(buffer);
+                }
+            };
+        }
+    }
+}
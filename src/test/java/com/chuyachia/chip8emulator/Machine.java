@@ -0,0 +1,49 @@
+package com.chuyachia.chip8emulator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+// Headless machine whose key waits are answered straight away, for comparing the execution engines
+class Machine {
+
+    private final static long SEED = 42;
+
+    final Memory memory = new Memory();
+    final FrameBuffer frameBuffer = new FrameBuffer();
+    final ProcessingUnit processingUnit;
+
+    Machine(byte[] game, String engineName) {
+        memory.loadGame(game);
+        Keyboard keyboard = new Keyboard() {
+            @Override
+            public int takeReleasedKey() {
+                return 5;
+            }
+        };
+        processingUnit = new ProcessingUnit(memory, frameBuffer, keyboard, Frontend.NONE, Speaker.NONE);
+        processingUnit.setRandomSeed(SEED);
+        processingUnit.setEngine(engineName);
+    }
+
+    int run(int instructions) {
+        return processingUnit.getEngine().run(instructions);
+    }
+
+    int getCompiledBlocks() {
+        return ((BlockCacheEngine) processingUnit.getEngine()).getCompiledBlocks();
+    }
+
+    void assertSameState(Machine other, String name) {
+        assertArrayEquals(name, Arrays.copyOf(processingUnit.getV(), MachineState.GENERAL_REGISTERS),
+                Arrays.copyOf(other.processingUnit.getV(), MachineState.GENERAL_REGISTERS));
+        assertEquals(name, processingUnit.getI(), other.processingUnit.getI());
+        assertEquals(name, processingUnit.getDT(), other.processingUnit.getDT());
+        assertEquals(name, processingUnit.getST(), other.processingUnit.getST());
+        assertEquals(name, memory.getPC(), other.memory.getPC());
+        assertEquals(name, processingUnit.getInstructionCount(), other.processingUnit.getInstructionCount());
+        assertArrayEquals(name, memory.getMemory(), other.memory.getMemory());
+        assertArrayEquals(name, frameBuffer.getRows(), other.frameBuffer.getRows());
+    }
+}
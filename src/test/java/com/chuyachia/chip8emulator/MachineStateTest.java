@@ -0,0 +1,70 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MachineStateTest {
+
+    @Test
+    public void testPartsLiveAtTheirOffsets() {
+        Machine machine = new Machine(new byte[] {0x12, 0x34}, CpuEngines.INTERPRETER);
+        ProcessingUnit processingUnit = machine.processingUnit;
+        processingUnit.getV()[3] = 0x2A;
+        processingUnit.setI((short) 0x2AB);
+        processingUnit.setDT((byte) 7);
+        processingUnit.setST((byte) 9);
+        machine.memory.setPC((short) 0x345);
+        processingUnit.getStack().push((short) 0x456);
+        machine.memory.setByte(0x300, (byte) 0x5A);
+        machine.frameBuffer.setHires(true);
+
+        byte[] state = MachineState.allocate();
+        processingUnit.copyStateTo(state);
+
+        assertEquals(0x2A, state[MachineState.V + 3]);
+        assertEquals(0x2AB, MachineState.getShort(state, MachineState.I));
+        assertEquals(7, state[MachineState.DT]);
+        assertEquals(9, state[MachineState.ST]);
+        assertEquals(0x345, MachineState.getShort(state, MachineState.PC));
+        assertEquals(0, state[MachineState.STACK]);
+        assertEquals(0x456, MachineState.getShort(state, MachineState.STACK + 1));
+        assertEquals(0x12, state[MachineState.MEMORY + 0x200]);
+        assertEquals(0x5A, state[MachineState.MEMORY + 0x300]);
+        assertEquals(1, state[MachineState.HIRES]);
+        assertEquals(SaveState.SIZE, 4 + 2 + MachineState.SIZE + 4);
+    }
+
+    @Test
+    public void testRestoredSnapshotRunsOnIdentically() throws IOException {
+        byte[] game = Files.readAllBytes(Paths.get("rom", "BLINKY"));
+        Machine original = new Machine(game, CpuEngines.BLOCK_CACHE);
+        assertEquals(ProcessingUnit.CYCLE_OK, original.run(100_000));
+        original.processingUnit.endFrame();
+
+        byte[] snapshot = MachineState.allocate();
+        original.processingUnit.copyStateTo(snapshot);
+        Machine restored = new Machine(new byte[0], CpuEngines.BLOCK_CACHE);
+        restored.processingUnit.restoreState(snapshot);
+        // The random generator is not part of the state, both machines continue with the same seed
+        original.processingUnit.setRandomSeed(7);
+        restored.processingUnit.setRandomSeed(7);
+        for (int frame = 0; frame < 20; frame++) {
+            assertEquals(ProcessingUnit.CYCLE_OK, original.run(5_000));
+            assertEquals(ProcessingUnit.CYCLE_OK, restored.run(5_000));
+            original.processingUnit.endFrame();
+            restored.processingUnit.endFrame();
+        }
+
+        byte[] expected = MachineState.allocate();
+        byte[] actual = MachineState.allocate();
+        original.processingUnit.copyStateTo(expected);
+        restored.processingUnit.copyStateTo(actual);
+        assertArrayEquals(expected, actual);
+    }
+}
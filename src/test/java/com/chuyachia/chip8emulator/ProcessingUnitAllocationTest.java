@@ -0,0 +1,77 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessingUnitAllocationTest {
+
+    private final static File ROM_DIR = new File("rom");
+    // Long enough for the JIT to settle even when earlier tests left it a backlog of compiled blocks to compile,
+    // recompilations in the measured window can materialize objects of the test itself
+    private final static int WARMUP_CYCLES = 3_000_000;
+    private final static int MEASURED_CYCLES = 3_000_000;
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+
+    @BeforeClass
+    public static void setup() {
+        threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void testSteadyStateExecutionDoesNotAllocate() throws IOException {
+        File[] roms = ROM_DIR.listFiles(File::isFile);
+        assertNotNull(roms);
+
+        for (File rom : roms) {
+            ProcessingUnit processingUnit = prepare(Files.readAllBytes(rom.toPath()));
+            runCycles(processingUnit, WARMUP_CYCLES, rom);
+
+            long threadId = Thread.currentThread().getId();
+            long calibrationStart = threadMXBean.getThreadAllocatedBytes(threadId);
+            long calibrationEnd = threadMXBean.getThreadAllocatedBytes(threadId);
+            long measurementOverhead = calibrationEnd - calibrationStart;
+
+            long start = threadMXBean.getThreadAllocatedBytes(threadId);
+            runCycles(processingUnit, MEASURED_CYCLES, rom);
+            long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - start - measurementOverhead;
+
+            assertEquals(String.format("Bytes allocated per cycle running %s", rom.getName()),
+                    0.0, (double) allocated / MEASURED_CYCLES, 0.0);
+        }
+    }
+
+    private static ProcessingUnit prepare(byte[] rom) {
+        Memory memory = new Memory();
+        memory.loadGame(rom);
+        // Answer key waits immediately so that the cycle loop never blocks
+        Keyboard keyboard = new Keyboard() {
+            @Override
+            public int takeReleasedKey() {
+                return 5;
+            }
+        };
+
+        return new ProcessingUnit(memory, new FrameBuffer(), keyboard, Frontend.NONE, Speaker.NONE);
+    }
+
+    private static void runCycles(ProcessingUnit processingUnit, int cycles, File rom) {
+        for (int i = 0; i < cycles; i++) {
+            int status = processingUnit.runInstructionCycle();
+            if (status != ProcessingUnit.CYCLE_OK) {
+                throw new AssertionError(String.format("%s stopped with status %d", rom.getName(), status));
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class ProcessingUnitTest {
 
@@ -12,10 +14,10 @@ public class ProcessingUnitTest {
 
     @BeforeClass
     public static void setup() {
-        Screen screen = new Screen();
+        FrameBuffer frameBuffer = new FrameBuffer();
         Keyboard keyboard = new Keyboard();
         memory = new Memory();
-        processingUnit = new ProcessingUnit(memory, screen, keyboard);
+        processingUnit = new ProcessingUnit(memory, frameBuffer, keyboard, Frontend.NONE, Speaker.NONE);
     }
 
     @Test
@@ -24,5 +26,86 @@ public class ProcessingUnitTest {
         processingUnit.jumpToNnnn(nnnn);
         assertEquals(nnnn, memory.getPC());
     }
+
+    @Test
+    public void testKeyWaitHaltsCpuButNotTimers() {
+        // 0x200 LD V0, 0x3C / LD DT, V0 / LD V3, K / LD V4, 1 / JP 0x208
+        byte[] game = {0x60, 0x3C, (byte) 0xF0, 0x15, (byte) 0xF3, 0x0A, 0x64, 0x01, 0x12, 0x08};
+        Memory memory = new Memory();
+        memory.loadGame(game);
+        Keyboard keyboard = new Keyboard();
+        ProcessingUnit processingUnit = new ProcessingUnit(memory, new FrameBuffer(), keyboard, Frontend.NONE, Speaker.NONE);
+
+        for (int frame = 0; frame < 10; frame++) {
+            assertEquals(ProcessingUnit.CYCLE_OK, processingUnit.runFrame());
+        }
+        assertTrue(processingUnit.isWaitingForKey());
+        assertEquals(3, processingUnit.getInstructionCount());
+        assertEquals(0x3C - 10, processingUnit.getDT());
+
+        keyboard.press(7);
+        assertEquals(ProcessingUnit.CYCLE_OK, processingUnit.runFrame());
+        assertTrue(processingUnit.isWaitingForKey());
+
+        keyboard.release(7);
+        assertEquals(ProcessingUnit.CYCLE_OK, processingUnit.runFrame());
+        assertFalse(processingUnit.isWaitingForKey());
+        assertEquals(7, processingUnit.getV()[3]);
+        assertEquals(1, processingUnit.getV()[4]);
+    }
+
+    @Test
+    public void testSoundTimerTurnsToneOnUntilItExpires() {
+        // 0x200 LD V0, 2 / LD ST, V0 / JP 0x204
+        byte[] game = {0x60, 0x02, (byte) 0xF0, 0x18, 0x12, 0x04};
+        Memory memory = new Memory();
+        memory.loadGame(game);
+        StringBuilder tones = new StringBuilder();
+        ProcessingUnit processingUnit = new ProcessingUnit(memory, new FrameBuffer(), new Keyboard(), Frontend.NONE,
+                on -> tones.append(on ? '1' : '0'));
+
+        for (int frame = 0; frame < 4; frame++) {
+            assertEquals(ProcessingUnit.CYCLE_OK, processingUnit.runFrame());
+        }
+        assertEquals("1100", tones.toString());
+        assertEquals(0, processingUnit.getST());
+    }
+
+    @Test
+    public void testRunCyclesStopsOnKeyWait() {
+        // 0x200 LD V3, K / JP 0x200
+        byte[] game = {(byte) 0xF3, 0x0A, 0x12, 0x00};
+        Memory memory = new Memory();
+        memory.loadGame(game);
+        ProcessingUnit processingUnit = new ProcessingUnit(memory, new FrameBuffer(), new Keyboard(), Frontend.NONE, Speaker.NONE);
+
+        assertEquals(1, processingUnit.runCycles(1_000));
+    }
+    @Test
+    public void testSuperChipInstructions() {
+        // 0x200 HIGH / LD V0, 5 / LD HF, V0 / LD V1, 120 / LD V2, 60 / DRW V1, V2, 0 / DRW V1, V2, 0 / LD VA, 7 /
+        // LD R, VA / LD V0, 0 / LD V0, R / EXIT
+        byte[] game = {0x00, (byte) 0xFF, 0x60, 0x05, (byte) 0xF0, 0x30, 0x61, 0x78, 0x62, 0x3C, (byte) 0xD1, 0x20,
+                (byte) 0xD1, 0x20, 0x6A, 0x07, (byte) 0xFA, 0x75, 0x60, 0x00, (byte) 0xF0, (byte) 0x85, 0x00,
+                (byte) 0xFD};
+        Memory memory = new Memory();
+        memory.loadGame(game);
+        FrameBuffer frameBuffer = new FrameBuffer();
+        ProcessingUnit processingUnit = new ProcessingUnit(memory, frameBuffer, new Keyboard(), Frontend.NONE, Speaker.NONE);
+
+        int status = ProcessingUnit.CYCLE_OK;
+        for (int frame = 0; frame < 10 && status == ProcessingUnit.CYCLE_OK; frame++) {
+            status = processingUnit.runFrame();
+        }
+        assertEquals(ProcessingUnit.PROGRAM_EXITED, status);
+        assertTrue(frameBuffer.isHires());
+        assertEquals(Memory.BIG_SPRITES_START + 5 * Memory.BIG_SPRITE_SIZE, processingUnit.getI());
+        // The second 16x16 sprite erased the first one, which wrapped around the bottom right corner. In high resolution
+        // VF counts the rows that collided, all 16 of them.
+        assertEquals(16, processingUnit.getV()[0xf]);
+        assertTrue(frameBuffer.toString().indexOf('#') < 0);
+        assertEquals(5, processingUnit.getV()[0]);
+    }
+
     // TODO add tests for other instruction methods
 }
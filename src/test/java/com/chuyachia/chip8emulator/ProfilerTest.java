@@ -0,0 +1,67 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProfilerTest {
+
+    private final static int CYCLES = 200_000;
+
+    @Test
+    public void testCountsInstructionsAddressesAndLoopHeads() throws IOException {
+        // 0x200 LD V0, 0 / ADD V0, 1 / SE V0, 5 / JP 0x202 / 0x208 JP 0x208
+        byte[] game = {
+                0x60, 0x00, 0x70, 0x01, 0x30, 0x05, 0x12, 0x02, 0x12, 0x08
+        };
+        Machine machine = new Machine(game, CpuEngines.INTERPRETER);
+        Profiler profiler = new Profiler();
+        machine.processingUnit.setProfiler(profiler);
+        assertEquals(ProcessingUnit.CYCLE_OK, machine.processingUnit.runProfiledInstructions(20));
+
+        assertEquals(20, profiler.getTotal());
+        assertEquals(1, profiler.getInstructionCount(Instruction.LD_VX));
+        assertEquals(5, profiler.getInstructionCount(Instruction.ADD_VX));
+        assertEquals(5, profiler.getInstructionCount(Instruction.SE_VX));
+        assertEquals(9, profiler.getInstructionCount(Instruction.JP_ADDR));
+        assertEquals(5, profiler.getAddressCount(0x202));
+        assertEquals(5, profiler.getAddressCount(0x208));
+        assertEquals(4, profiler.getLoopHeadCount(0x202));
+        assertEquals(5, profiler.getLoopHeadCount(0x208));
+        assertEquals(0, profiler.getLoopHeadCount(0x200));
+        assertEquals(6, profiler.getCategoryCount(Profiler.ALU));
+        assertEquals(0, profiler.getCategoryCount(Profiler.DRAW));
+
+        profiler.captureCode(machine.memory);
+        StringBuilder report = new StringBuilder();
+        profiler.writeReport(report);
+        assertTrue(report.toString(), report.toString().contains("202 7001 ADD_VX"));
+    }
+
+    @Test
+    public void testProfiledRunMatchesInterpreter() throws IOException {
+        File[] roms = new File("rom").listFiles(File::isFile);
+        assertNotNull(roms);
+
+        for (File rom : roms) {
+            byte[] game = Files.readAllBytes(rom.toPath());
+            Machine interpreted = new Machine(game, CpuEngines.INTERPRETER);
+            Machine profiled = new Machine(game, CpuEngines.INTERPRETER);
+            Profiler profiler = new Profiler();
+            profiled.processingUnit.setProfiler(profiler);
+            for (int frame = 0; frame < CYCLES / 10; frame++) {
+                assertEquals(ProcessingUnit.CYCLE_OK, interpreted.run(10));
+                assertEquals(ProcessingUnit.CYCLE_OK, profiled.processingUnit.runProfiledInstructions(10));
+            }
+
+            interpreted.assertSameState(profiled, rom.getName());
+            assertEquals(rom.getName(), profiled.processingUnit.getInstructionCount(), profiler.getTotal());
+        }
+    }
+}
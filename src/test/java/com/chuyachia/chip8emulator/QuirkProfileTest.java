@@ -0,0 +1,146 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QuirkProfileTest {
+
+    // 0x200 LD VA, 60 / LD VB, 30 / LD I, 0x21C / DRW VA, VB, 4 / LD V1, 0x81 / LD V2, 6 / SHR V2, V1 / SHL V3, V1 /
+    // LD I, 0x300 / LD [I], V3 / JP 0x208, then a 4 rows sprite at 0x21C
+    private final static byte[] GAME = {0x6A, 0x3C, 0x6B, 0x1E, (byte) 0xA2, 0x1C, (byte) 0xDA, (byte) 0xB4, 0x61,
+            (byte) 0x81, 0x62, 0x06, (byte) 0x82, 0x16, (byte) 0x83, 0x1E, (byte) 0xA3, 0x00, (byte) 0xF3, 0x55, 0x12,
+            0x08, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+    private final static int INSTRUCTIONS = 20_000;
+    private final static int BUNDLED_FRAMES = 3_000;
+
+    @Test
+    public void testProfilesOnEveryEngine() {
+        for (QuirkProfile profile : QuirkProfile.values()) {
+            Machine interpreted = run(profile, CpuEngines.INTERPRETER);
+            byte[] V = interpreted.processingUnit.getV();
+            boolean vip = profile == QuirkProfile.COSMAC_VIP;
+            assertEquals(profile.name(), vip ? 0x40 : 3, V[2]);
+            assertEquals(profile.name(), vip ? 0x02 : 0, V[3]);
+            assertEquals(profile.name(), vip ? 1 : 0, V[0xf]);
+
+            int advance = profile == QuirkProfile.COSMAC_VIP ? 4 : profile == QuirkProfile.CHIP48 ? 3 : 0;
+            assertEquals(profile.name(), 0x300 + advance, interpreted.processingUnit.getI());
+
+            FrameBuffer frameBuffer = interpreted.frameBuffer;
+            assertTrue(profile.name(), frameBuffer.isSet(63, 31));
+            boolean wraps = profile == QuirkProfile.MODERN;
+            assertEquals(profile.name(), wraps, frameBuffer.isSet(0, 0));
+            assertEquals(profile.name(), wraps, frameBuffer.isSet(3, 31));
+            assertEquals(profile.name(), wraps, frameBuffer.isSet(63, 0));
+            assertFalse(profile.name(), frameBuffer.isSet(4, 31));
+
+            for (String engine : new String[]{CpuEngines.BLOCK_CACHE, CpuEngines.JIT}) {
+                interpreted.assertSameState(run(profile, engine), profile + " " + engine);
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeTablesHoldTheVariantsOfTheProfile() {
+        assertEquals(Instruction.SHR_VX_FROM_VY, QuirkProfile.COSMAC_VIP.decodeTable[0x8126]);
+        assertEquals(Instruction.LD_I_VX_PAST_LAST, QuirkProfile.COSMAC_VIP.decodeTable[0xF355]);
+        assertEquals(Instruction.LD_VX_I_TO_LAST, QuirkProfile.CHIP48.decodeTable[0xF365]);
+        assertEquals(Instruction.DRW_VX_VY_CLIP, QuirkProfile.SCHIP.decodeTable[0xDAB4]);
+        // Variants only ever stand for an instruction of the same opcode, MODERN has none
+        for (int opcode = 0; opcode < Instruction.OPCODES; opcode++) {
+            Instruction matched = Instruction.getMatched((short) opcode);
+            assertEquals(matched, QuirkProfile.MODERN.decodeTable[opcode]);
+            for (QuirkProfile profile : QuirkProfile.values()) {
+                Instruction decoded = profile.decodeTable[opcode];
+                assertEquals(matched == null, decoded == null);
+                assertTrue(decoded == null || decoded.match((short) opcode));
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledCodeFollowsAProfileChange() {
+        Machine machine = run(QuirkProfile.MODERN, CpuEngines.JIT);
+        assertTrue(machine.getCompiledBlocks() > 0);
+
+        // Same game loaded again under another profile, none of its instructions change
+        machine.processingUnit.setQuirkProfile(QuirkProfile.COSMAC_VIP);
+        machine.memory.loadGame(GAME);
+        machine.memory.setPC((short) 0x200);
+        assertEquals(ProcessingUnit.CYCLE_OK, machine.run(INSTRUCTIONS));
+        assertEquals(0x40, machine.processingUnit.getV()[2]);
+        assertEquals(0x02, machine.processingUnit.getV()[3]);
+        assertEquals(0x304, machine.processingUnit.getI());
+    }
+
+    @Test
+    public void testHiresSpritesClipAtBothWords() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        frameBuffer.switchResolution(true);
+        frameBuffer.displayWideClipped((byte) 120, (byte) 63, (short) 0xFFFF, 0);
+        frameBuffer.displayWideClipped((byte) 120, (byte) 63, (short) 0xFFFF, 1);
+        frameBuffer.displayWideClipped((byte) 60, (byte) 10, (short) 0xFFFF, 0);
+        assertTrue(frameBuffer.isSet(127, 63));
+        assertFalse(frameBuffer.isSet(0, 63));
+        assertFalse(frameBuffer.isSet(0, 0));
+        assertTrue(frameBuffer.isSet(60, 10));
+        assertTrue(frameBuffer.isSet(75, 10));
+        assertFalse(frameBuffer.isSet(76, 10));
+    }
+
+    @Test
+    public void testProfileIsPickedFromTheRom() throws IOException {
+        assertEquals(QuirkProfile.SCHIP, QuirkProfile.forRom(Files.readAllBytes(Paths.get("rom", "BLINKY"))));
+        assertEquals(QuirkProfile.CHIP48, QuirkProfile.forRom(Files.readAllBytes(Paths.get("rom", "INVADERS"))));
+        assertEquals(QuirkProfile.MODERN, QuirkProfile.forRom(GAME));
+    }
+
+    // Each bundled ROM under the profile it is bound to, with keys pressed in turn, screens hashed on the interpreter.
+    // The bound profiles give the same screens as MODERN over these frames.
+    @Test
+    public void testBundledRomsRunUnderTheirProfile() throws IOException {
+        String[] roms = {"15PUZZLE", "BLINKY", "INVADERS", "PONG", "TETRIS"};
+        QuirkProfile[] profiles = {QuirkProfile.MODERN, QuirkProfile.SCHIP, QuirkProfile.CHIP48, QuirkProfile.MODERN,
+                QuirkProfile.MODERN};
+        long[] hashes = {0x7EC86CF3643CED25L, 0x4F9817BD1D30ABC5L, 0x5DA41A65053CED25L,
+                0x84B7588DEC14BEC7L, 0x3980A911CC7CED25L};
+        for (int i = 0; i < roms.length; i++) {
+            byte[] rom = Files.readAllBytes(Paths.get("rom", roms[i]));
+            assertEquals(roms[i], profiles[i], QuirkProfile.forRom(rom));
+            for (String engine : CpuEngines.names()) {
+                assertEquals(roms[i] + " " + engine, hashes[i], playBound(rom, engine));
+            }
+        }
+    }
+
+    private static long playBound(byte[] rom, String engine) {
+        Memory memory = new Memory();
+        FrameBuffer frameBuffer = new FrameBuffer();
+        Keyboard keyboard = new Keyboard();
+        ProcessingUnit processingUnit = new ProcessingUnit(memory, frameBuffer, keyboard, Frontend.NONE, Speaker.NONE);
+        processingUnit.setEngine(engine);
+        processingUnit.setQuirkProfile(QuirkProfile.forRom(rom));
+        memory.loadGame(rom);
+        processingUnit.setRandomSeed(1);
+        for (int frame = 0; frame < BUNDLED_FRAMES; frame++) {
+            keyboard.setKeys(frame % 40 < 20 ? 1 << frame / 40 % Keyboard.KEY_NUMBER : 0);
+            assertEquals(ProcessingUnit.CYCLE_OK, processingUnit.runFrame());
+        }
+
+        return SessionLog.hash(frameBuffer);
+    }
+
+    private static Machine run(QuirkProfile profile, String engine) {
+        Machine machine = new Machine(GAME, engine);
+        machine.processingUnit.setQuirkProfile(profile);
+        assertEquals(ProcessingUnit.CYCLE_OK, machine.run(INSTRUCTIONS));
+        return machine;
+    }
+}
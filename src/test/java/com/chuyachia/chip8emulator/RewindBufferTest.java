@@ -0,0 +1,104 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RewindBufferTest {
+
+    private final static int FRAMES = 600;
+
+    @Test
+    public void testStepBackRestoresEveryPreviousFrame() throws IOException {
+        Machine machine = new Machine(Files.readAllBytes(Paths.get("rom", "INVADERS")), CpuEngines.JIT);
+        RewindBuffer rewindBuffer = newRewindBuffer(machine, RewindBuffer.DEFAULT_CAPACITY, FRAMES);
+        byte[][] snapshots = record(machine, rewindBuffer, FRAMES);
+        assertEquals(FRAMES, rewindBuffer.getFrames());
+
+        for (int frame = FRAMES - 1; frame >= 0; frame--) {
+            assertTrue(rewindBuffer.stepBack());
+            assertArrayEquals("Frame " + frame, snapshots[frame], snapshot(machine));
+        }
+        assertFalse(rewindBuffer.stepBack());
+
+        // The block cache sees the restored pages, the game runs on from the first frame as it did the first time.
+        // Pacing is not rewound, FRAMES is a whole number of the periods over which the clock rate divides evenly.
+        machine.processingUnit.setRandomSeed(42);
+        byte[][] replayed = record(machine, rewindBuffer, FRAMES);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            assertArrayEquals("Replayed frame " + frame, snapshots[frame], replayed[frame]);
+        }
+    }
+
+    @Test
+    public void testInstructionsAfterLastCaptureAreDropped() throws IOException {
+        Machine machine = new Machine(Files.readAllBytes(Paths.get("rom", "TETRIS")), CpuEngines.INTERPRETER);
+        RewindBuffer rewindBuffer = newRewindBuffer(machine, RewindBuffer.DEFAULT_CAPACITY, FRAMES);
+        byte[][] snapshots = record(machine, rewindBuffer, 100);
+
+        assertEquals(ProcessingUnit.CYCLE_OK, machine.run(1000));
+        assertTrue(rewindBuffer.stepBack());
+        assertArrayEquals(snapshots[99], snapshot(machine));
+    }
+
+    @Test
+    public void testOldestFramesAreDroppedWhenFull() throws IOException {
+        Machine machine = new Machine(Files.readAllBytes(Paths.get("rom", "BLINKY")), CpuEngines.INTERPRETER);
+        RewindBuffer rewindBuffer = newRewindBuffer(machine, RewindBuffer.MAX_RECORD_SIZE * 3, FRAMES);
+        byte[][] snapshots = record(machine, rewindBuffer, FRAMES);
+
+        int frames = rewindBuffer.getFrames();
+        assertTrue(frames > 0 && frames < FRAMES);
+        for (int frame = FRAMES - 1; frame >= FRAMES - frames; frame--) {
+            assertTrue(rewindBuffer.stepBack());
+            assertArrayEquals("Frame " + frame, snapshots[frame], snapshot(machine));
+        }
+        assertFalse(rewindBuffer.stepBack());
+    }
+
+    @Test
+    public void testFrameLimitBoundsHistory() throws IOException {
+        Machine machine = new Machine(Files.readAllBytes(Paths.get("rom", "PONG")), CpuEngines.BLOCK_CACHE);
+        RewindBuffer rewindBuffer = newRewindBuffer(machine, RewindBuffer.DEFAULT_CAPACITY, 10);
+        byte[][] snapshots = record(machine, rewindBuffer, FRAMES);
+
+        assertEquals(10, rewindBuffer.getFrames());
+        for (int frame = FRAMES - 1; frame >= FRAMES - 10; frame--) {
+            assertTrue(rewindBuffer.stepBack());
+            assertArrayEquals("Frame " + frame, snapshots[frame], snapshot(machine));
+        }
+        assertFalse(rewindBuffer.stepBack());
+    }
+
+    private static RewindBuffer newRewindBuffer(Machine machine, int capacity, int maxFrames) {
+        return new RewindBuffer(machine.processingUnit, machine.memory, capacity, maxFrames);
+    }
+
+    // Snapshot of the state before each of the given frames, capturing them into the rewind buffer
+    private static byte[][] record(Machine machine, RewindBuffer rewindBuffer, int frames) {
+        byte[][] snapshots = new byte[frames][];
+        rewindBuffer.clear();
+        rewindBuffer.capture();
+        for (int frame = 0; frame < frames; frame++) {
+            snapshots[frame] = snapshot(machine);
+            assertEquals(ProcessingUnit.CYCLE_OK, machine.processingUnit.runFrame());
+            rewindBuffer.capture();
+        }
+
+        return snapshots;
+    }
+
+    private static byte[] snapshot(Machine machine) {
+        ByteBuffer buffer = ByteBuffer.allocate(SaveState.SIZE);
+        SaveState.capture(machine.processingUnit, buffer);
+        return buffer.array();
+    }
+}
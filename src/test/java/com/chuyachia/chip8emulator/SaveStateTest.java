@@ -0,0 +1,175 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SaveStateTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRestoredMachineRunsOnIdentically() throws IOException {
+        byte[] game = Files.readAllBytes(Paths.get("rom", "INVADERS"));
+        Machine original = new Machine(game, CpuEngines.INTERPRETER);
+        assertEquals(ProcessingUnit.CYCLE_OK, original.run(100_000));
+
+        File file = folder.newFile();
+        ByteBuffer buffer = ByteBuffer.allocate(SaveState.SIZE);
+        SaveState.capture(original.processingUnit, buffer);
+        SaveState.write(buffer, file.toPath());
+        assertEquals(SaveState.SIZE, file.length());
+
+        Machine restored = new Machine(new byte[0], CpuEngines.INTERPRETER);
+        SaveState.restore(restored.processingUnit, SaveState.read(file.toPath()));
+        // The random generator is not part of the state, both machines continue with the same seed
+        original.processingUnit.setRandomSeed(7);
+        restored.processingUnit.setRandomSeed(7);
+        assertEquals(ProcessingUnit.CYCLE_OK, original.run(100_000));
+        assertEquals(ProcessingUnit.CYCLE_OK, restored.run(100_000));
+
+        assertEquals(original.memory.getPC(), restored.memory.getPC());
+        assertEquals(original.processingUnit.getDT(), restored.processingUnit.getDT());
+        assertEquals(original.processingUnit.getST(), restored.processingUnit.getST());
+        assertEquals(original.processingUnit.getI(), restored.processingUnit.getI());
+        assertArrayEquals(Arrays.copyOf(original.processingUnit.getV(), MachineState.GENERAL_REGISTERS),
+                Arrays.copyOf(restored.processingUnit.getV(), MachineState.GENERAL_REGISTERS));
+        assertArrayEquals(original.memory.getMemory(), restored.memory.getMemory());
+        assertArrayEquals(original.frameBuffer.getRows(), restored.frameBuffer.getRows());
+    }
+
+    @Test
+    public void testCorruptedSaveStateIsRejected() throws IOException {
+        File file = folder.newFile();
+        ByteBuffer buffer = ByteBuffer.allocate(SaveState.SIZE);
+        SaveState.capture(new Machine(new byte[]{0x12, 0x00}, CpuEngines.INTERPRETER).processingUnit, buffer);
+        SaveState.write(buffer, file.toPath());
+        try (RandomAccessFile content = new RandomAccessFile(file, "rw")) {
+            content.seek(1000);
+            content.write(0x5A);
+        }
+
+        try {
+            SaveState.read(file.toPath());
+            fail("Corrupted save state was read");
+        } catch (IOException expected) {
+            assertEquals("Save state is corrupted", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testVersion1SaveStateIsRead() throws IOException {
+        // Layout of the saves written before SUPER-CHIP
+        int memory = 6 + MachineState.RPL;
+        int rows = memory + Memory.MEMORY_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(rows + FrameBuffer.HEIGHT * 8 + 1 + 4);
+        buffer.putInt(SaveState.MAGIC);
+        buffer.putShort((short) 1);
+        byte[] V = new byte[16];
+        V[3] = 0x2A;
+        buffer.put(V);
+        buffer.putShort((short) 0x300);
+        buffer.put((byte) 9);
+        buffer.put((byte) 4);
+        buffer.putShort((short) 0x234);
+        buffer.put((byte) 0);
+        buffer.putShort((short) 0x456);
+        buffer.position(memory - 1);
+        buffer.put((byte) -1);
+        buffer.put(memory + 0x234, (byte) 0x12);
+        buffer.putLong(rows + 5 * 8, 0x0000810000000000L);
+        buffer.position(rows + FrameBuffer.HEIGHT * 8);
+        buffer.put((byte) 1);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        File file = folder.newFile();
+        Files.write(file.toPath(), buffer.array());
+
+        Machine restored = new Machine(new byte[0], CpuEngines.INTERPRETER);
+        SaveState.restore(restored.processingUnit, SaveState.read(file.toPath()));
+
+        ProcessingUnit processingUnit = restored.processingUnit;
+        assertEquals(0x2A, processingUnit.getV()[3]);
+        assertEquals(0x300, processingUnit.getI());
+        assertEquals(9, processingUnit.getDT());
+        assertEquals(4, processingUnit.getST());
+        assertEquals(0x234, restored.memory.getPC());
+        assertEquals(0x456, processingUnit.getStack().pop());
+        assertEquals(0x12, restored.memory.getByte(0x234));
+        assertFalse(restored.frameBuffer.isHires());
+        assertTrue(restored.frameBuffer.isSet(16, 5));
+        assertTrue(restored.frameBuffer.isSet(23, 5));
+        assertTrue(restored.frameBuffer.getCollision());
+    }
+
+    @Test
+    public void testUnknownSaveStateVersionIsReported() throws IOException {
+        File file = folder.newFile();
+        ByteBuffer buffer = ByteBuffer.allocate(SaveState.SIZE);
+        buffer.putInt(SaveState.MAGIC);
+        buffer.putShort((short) 9);
+        Files.write(file.toPath(), buffer.array());
+
+        try {
+            SaveState.read(file.toPath());
+            fail("Save state of an unknown version was read");
+        } catch (IOException expected) {
+            assertEquals("Unsupported save state version 9", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testSerializedSaveFileIsImported() throws IOException, ClassNotFoundException {
+        byte[] V = new byte[16];
+        V[3] = 0x2A;
+        byte[] memory = new byte[Memory.MEMORY_SIZE];
+        memory[0x200] = 0x12;
+        byte[][] pixels = new byte[FrameBuffer.HEIGHT][FrameBuffer.WIDTH / FrameBuffer.BYTE_SIZE];
+        pixels[5][2] = (byte) 0x81;
+        Stack stack = new Stack();
+        stack.push((short) 0x234);
+
+        // Same objects in the same order as the former ObjectOutputStream based save
+        File file = folder.newFile();
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+            out.writeObject(V);
+            out.writeObject((short) 0x300);
+            out.writeObject((byte) 9);
+            out.writeObject((byte) 4);
+            out.writeObject(stack);
+            out.writeObject((short) 0x200);
+            out.writeObject(memory);
+            out.writeObject(pixels);
+            out.writeObject(true);
+        }
+
+        Chip8 chip8 = new Chip8();
+        chip8.restoreSavedGame(file);
+        ProcessingUnit processingUnit = chip8.getProcessingUnit();
+        assertEquals(0x2A, processingUnit.getV()[3]);
+        assertEquals(0x300, processingUnit.getI());
+        assertEquals(9, processingUnit.getDT());
+        assertEquals(4, processingUnit.getST());
+        assertTrue(chip8.getFrameBuffer().isSet(23, 5));
+        assertTrue(chip8.getFrameBuffer().isSet(16, 5));
+    }
+}
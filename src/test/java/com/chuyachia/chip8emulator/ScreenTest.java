@@ -0,0 +1,78 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScreenTest {
+
+    private final static int SCALE_FACTOR = 3;
+
+    @Test
+    public void testPaintedImageFollowsFrameBuffer() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        Screen screen = new Screen(frameBuffer);
+        screen.setScaleFactor(SCALE_FACTOR);
+        BufferedImage image = new BufferedImage(FrameBuffer.WIDTH * SCALE_FACTOR, FrameBuffer.HEIGHT * SCALE_FACTOR,
+                BufferedImage.TYPE_INT_RGB);
+
+        frameBuffer.display((byte) 62, (byte) 4, (byte) 0xA5, 0);
+        frameBuffer.publish();
+        paint(screen, image);
+        assertImageMatches(frameBuffer, image);
+
+        // Rows drawn again and rows left untouched since the previous paint
+        frameBuffer.display((byte) 62, (byte) 4, (byte) 0xA5, 0);
+        frameBuffer.display((byte) 10, (byte) 31, (byte) 0xFF, 0);
+        frameBuffer.publish();
+        paint(screen, image);
+        assertImageMatches(frameBuffer, image);
+    }
+
+    @Test
+    public void testHiresPixelsAreHalfTheSize() {
+        FrameBuffer frameBuffer = new FrameBuffer();
+        Screen screen = new Screen(frameBuffer);
+        screen.setScaleFactor(SCALE_FACTOR * 2);
+        BufferedImage image = new BufferedImage(FrameBuffer.HIRES_WIDTH * SCALE_FACTOR,
+                FrameBuffer.HIRES_HEIGHT * SCALE_FACTOR, BufferedImage.TYPE_INT_RGB);
+
+        frameBuffer.switchResolution(true);
+        frameBuffer.displayWide((byte) 60, (byte) 62, (short) 0xA5C3, 0);
+        frameBuffer.displayWide((byte) 120, (byte) 7, (short) 0xFFFF, 0);
+        frameBuffer.publish();
+        paint(screen, image);
+        assertImageMatches(frameBuffer, image);
+
+        // Back in low resolution the image is rebuilt with full size pixels
+        frameBuffer.switchResolution(false);
+        frameBuffer.display((byte) 62, (byte) 4, (byte) 0xA5, 0);
+        frameBuffer.publish();
+        screen.setScaleFactor(SCALE_FACTOR);
+        image = new BufferedImage(FrameBuffer.WIDTH * SCALE_FACTOR, FrameBuffer.HEIGHT * SCALE_FACTOR,
+                BufferedImage.TYPE_INT_RGB);
+        paint(screen, image);
+        assertImageMatches(frameBuffer, image);
+    }
+
+    private static void paint(Screen screen, BufferedImage image) {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            screen.paintComponent(graphics);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    private static void assertImageMatches(FrameBuffer frameBuffer, BufferedImage image) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Color expected = frameBuffer.isSet(x / SCALE_FACTOR, y / SCALE_FACTOR) ? Color.GREEN : Color.BLACK;
+                assertEquals(String.format("Pixel %d, %d", x, y), expected.getRGB(), image.getRGB(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionReplayTest {
+
+    private final static int FRAMES = 3000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecordedSessionReplaysIdentically() throws IOException, InterruptedException {
+        byte[] rom = Files.readAllBytes(Paths.get("rom", "TETRIS"));
+        SessionLog recorded = record(rom, 1_000, QuirkProfile.forRom(rom));
+        assertTrue(recorded.getEventCount() > 10);
+
+        Path file = folder.newFile().toPath();
+        recorded.write(file);
+        SessionLog log = SessionLog.read(file);
+        assertEquals(FRAMES, log.getFrames());
+        assertEquals(FRAMES / SessionLog.CHECKPOINT_FRAMES, log.getCheckpointCount());
+
+        for (String engine : CpuEngines.names()) {
+            SessionReplay replay = new SessionReplay(log, rom);
+            assertTrue(replay.getProcessingUnit().setEngine(engine));
+            int status = replay.run();
+            assertEquals(replay.describeStatus(status), SessionReplay.REPLAY_OK, status);
+            assertEquals(FRAMES, replay.getFrame());
+        }
+    }
+
+    @Test
+    public void testDivergingReplayIsReported() throws IOException, InterruptedException {
+        byte[] rom = Files.readAllBytes(Paths.get("rom", "TETRIS"));
+        Path file = folder.newFile().toPath();
+        record(rom, 1_000, QuirkProfile.forRom(rom)).write(file);
+
+        // Same input on another random sequence, the pieces differ
+        byte[] content = Files.readAllBytes(file);
+        content[13] ^= 1;
+        Files.write(file, content);
+        SessionLog log = SessionLog.read(file);
+        SessionReplay replay = new SessionReplay(log, rom);
+        int status = replay.run();
+        assertTrue(replay.describeStatus(status),
+                status == SessionReplay.FRAME_MISMATCH || status == SessionReplay.INPUT_MISMATCH);
+        assertTrue(replay.getFrame() < FRAMES);
+
+        byte[] otherRom = Files.readAllBytes(Paths.get("rom", "PONG"));
+        assertEquals(SessionReplay.ROM_MISMATCH, new SessionReplay(log, otherRom).run());
+    }
+
+    @Test
+    public void testSessionReplaysWithTheProfileItWasRecordedWith() throws IOException, InterruptedException {
+        byte[] rom = Files.readAllBytes(Paths.get("rom", "INVADERS"));
+        Path file = folder.newFile().toPath();
+        record(rom, 1_000, QuirkProfile.COSMAC_VIP).write(file);
+
+        SessionLog log = SessionLog.read(file);
+        assertEquals(QuirkProfile.COSMAC_VIP, log.getQuirkProfile());
+        SessionReplay replay = new SessionReplay(log, rom);
+        int status = replay.run();
+        assertEquals(replay.describeStatus(status), SessionReplay.REPLAY_OK, status);
+        assertEquals(QuirkProfile.COSMAC_VIP, replay.getProcessingUnit().getQuirkProfile());
+    }
+
+    // Plays the game with keys pressed and released from another thread while the frames run
+    private static SessionLog record(byte[] rom, int clockRate, QuirkProfile quirkProfile) throws InterruptedException {
+        Memory memory = new Memory();
+        memory.loadGame(rom);
+        Keyboard keyboard = new Keyboard();
+        FrameBuffer frameBuffer = new FrameBuffer();
+        ProcessingUnit processingUnit = new ProcessingUnit(memory, frameBuffer, keyboard, Frontend.NONE, Speaker.NONE);
+        processingUnit.setClockRate(clockRate);
+        processingUnit.setQuirkProfile(quirkProfile);
+        SessionLog log = new SessionLog(1234, clockRate, SessionLog.romCrc(rom), quirkProfile);
+        processingUnit.setRandomSeed(log.getSeed());
+        processingUnit.setSessionLog(log);
+
+        Thread player = new Thread(() -> {
+            Random random = new Random();
+            while (!Thread.currentThread().isInterrupted()) {
+                int key = random.nextInt(Keyboard.KEY_NUMBER);
+                keyboard.press(key);
+                Thread.yield();
+                keyboard.release(key);
+            }
+        });
+        player.start();
+        try {
+            for (int frame = 0; frame < FRAMES; frame++) {
+                assertEquals(ProcessingUnit.CYCLE_OK, processingUnit.runFrame());
+                if (frame % 50 == 0) {
+                    Thread.sleep(1);
+                }
+            }
+        } finally {
+            player.interrupt();
+            player.join();
+        }
+
+        return log;
+    }
+}
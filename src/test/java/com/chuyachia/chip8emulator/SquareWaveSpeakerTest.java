@@ -0,0 +1,76 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SquareWaveSpeakerTest {
+
+    @Test
+    public void testToneIsSquareWaveInWholeChunks() throws InterruptedException {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        AudioSink sink = new AudioSink() {
+            @Override
+            public void write(byte[] samples, int length) {
+                captured.write(samples, 0, length);
+            }
+
+            @Override
+            public boolean isPaced() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        SquareWaveSpeaker speaker = new SquareWaveSpeaker(sink);
+        Thread.sleep(30);
+        speaker.setTone(true);
+        Thread.sleep(100);
+        speaker.setTone(false);
+        Thread.sleep(50);
+        speaker.close();
+
+        ShortBuffer samples = ByteBuffer.wrap(captured.toByteArray()).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        int chunks = samples.remaining() / SquareWaveSpeaker.CHUNK_SAMPLES;
+        assertEquals(0, samples.remaining() % SquareWaveSpeaker.CHUNK_SAMPLES);
+
+        int toneChunks = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int start = chunk * SquareWaveSpeaker.CHUNK_SAMPLES;
+            boolean tone = samples.get(start) != 0;
+            if (tone) {
+                toneChunks++;
+            }
+            for (int i = start; i < start + SquareWaveSpeaker.CHUNK_SAMPLES; i++) {
+                short sample = samples.get(i);
+                if (tone) {
+                    assertEquals(SquareWaveSpeaker.AMPLITUDE, Math.abs(sample));
+                } else {
+                    assertEquals(0, sample);
+                }
+            }
+        }
+        assertTrue(toneChunks > 0);
+        assertEquals(0, samples.get(samples.limit() - 1));
+
+        // Half a period of 440 Hz is about 50 samples
+        int first = 0;
+        while (samples.get(first) == 0) {
+            first++;
+        }
+        int run = 0;
+        while (samples.get(first + run) == SquareWaveSpeaker.AMPLITUDE) {
+            run++;
+        }
+        assertEquals(AudioSink.SAMPLE_RATE / (2 * SquareWaveSpeaker.TONE_FREQUENCY) + 1, run);
+    }
+}
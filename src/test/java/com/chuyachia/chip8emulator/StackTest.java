@@ -4,6 +4,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class StackTest {
     private Stack stack;
@@ -14,23 +16,26 @@ public class StackTest {
     }
 
     @Test
-    public void testValidPush() throws Exception {
-        for (int i = 0; i < stack.STACK_LEVEL; i++) {
-            stack.push((short) i);
+    public void testValidPush() {
+        for (int i = 0; i < Stack.STACK_LEVEL; i++) {
+            assertTrue(stack.push((short) i));
         }
 
         assertEquals(15, stack.peek());
     }
 
-    @Test(expected = Exception.class)
-    public void testInvalidPush() throws Exception {
-        for (int i = 0; i < stack.STACK_LEVEL + 1; i++) {
+    @Test
+    public void testInvalidPush() {
+        for (int i = 0; i < Stack.STACK_LEVEL; i++) {
             stack.push((short) i);
         }
+
+        assertFalse(stack.push((short) Stack.STACK_LEVEL));
+        assertEquals(15, stack.peek());
     }
 
     @Test
-    public void testPeek() throws Exception {
+    public void testPeek() {
         stack.push((short) 2);
         stack.push((short) 3);
         assertEquals(3, stack.peek());
@@ -38,12 +43,21 @@ public class StackTest {
     }
 
     @Test
-    public void testPop() throws Exception {
+    public void testPop() {
         stack.push((short) 2);
         stack.push((short) 3);
-        short val = stack.pop();
+        int val = stack.pop();
         assertEquals(3, val);
         assertEquals(2, stack.peek());
     }
 
+    @Test
+    public void testEmpty() {
+        assertEquals(Stack.EMPTY, stack.peek());
+        assertEquals(Stack.EMPTY, stack.pop());
+        stack.push((short) 0xfff);
+        assertEquals(0xfff, stack.pop());
+        assertEquals(Stack.EMPTY, stack.pop());
+    }
+
 }
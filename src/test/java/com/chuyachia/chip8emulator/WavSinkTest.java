@@ -0,0 +1,46 @@
+package com.chuyachia.chip8emulator;
+
+import org.junit.Test;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class WavSinkTest {
+
+    @Test
+    public void testCapturedFileReadsBack() throws IOException, UnsupportedAudioFileException {
+        Path path = Files.createTempFile("chip8", ".wav");
+        try {
+            byte[] samples = new byte[1_000];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (byte) i;
+            }
+            WavSink sink = new WavSink(path);
+            sink.write(samples, 600);
+            sink.write(samples, 400);
+            sink.close();
+
+            try (AudioInputStream in = AudioSystem.getAudioInputStream(path.toFile())) {
+                assertEquals(AudioSink.FORMAT.toString(), in.getFormat().toString());
+                assertEquals(500, in.getFrameLength());
+                byte[] read = new byte[1_000];
+                new DataInputStream(in).readFully(read);
+                assertEquals(-1, in.read(new byte[2]));
+                byte[] expected = new byte[1_000];
+                System.arraycopy(samples, 0, expected, 0, 600);
+                System.arraycopy(samples, 0, expected, 600, 400);
+                assertArrayEquals(expected, read);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}